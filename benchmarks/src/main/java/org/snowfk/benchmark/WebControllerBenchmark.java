@@ -0,0 +1,108 @@
+package org.snowfk.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snowfk.testsupport.mock.ApplicationLoaderMock;
+import org.snowfk.testsupport.mock.RequestContextMock;
+import org.snowfk.testsupport.mock.RequestContextMockFactory;
+import org.snowfk.testsupport.mock.RequestContextMockFactory.RequestMethod;
+import org.snowfk.util.MapUtil;
+import org.snowfk.web.WebController;
+
+/**
+ * End to end WebController.service throughput on the benchApp (src/main/webapp/benchApp), using the testsupport
+ * mocks.<br />
+ * 
+ * Run from the benchmarks folder (or set -Dsnow.benchmark.appDir): <br />
+ * <code>java -jar target/benchmarks.jar</code> for throughput, and add <code>-prof gc</code> for the allocation rate
+ * (gc.alloc.rate.norm is the bytes allocated per request). <br />
+ * 
+ * Note: each invocation includes the creation of the RequestContextMock (same cost for all versions of snow), so the
+ * numbers are for comparing snow versions and optimizations, not absolute server throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+// Guice 3 (cglib) needs java.lang to be open on Java 9+ (the flags are ignored on Java 8)
+@Fork(value = 1, jvmArgsAppend = { "-XX:+IgnoreUnrecognizedVMOptions", "--add-opens=java.base/java.lang=ALL-UNNAMED" })
+public class WebControllerBenchmark {
+
+    private ApplicationLoaderMock     appLoader;
+    private WebController             webController;
+    private RequestContextMockFactory requestContextFactory;
+
+    @Setup
+    public void setup() throws Exception {
+        File appDir = new File(System.getProperty("snow.benchmark.appDir", "src/main/webapp/benchApp"));
+        if (!appDir.exists()) {
+            throw new IllegalStateException("Benchmark application folder " + appDir.getAbsolutePath()
+                                    + " does not exist (run from the benchmarks folder or set -Dsnow.benchmark.appDir)");
+        }
+
+        appLoader = new ApplicationLoaderMock(appDir, null).load();
+        webController = appLoader.getWebController();
+        webController.init();
+
+        requestContextFactory = new RequestContextMockFactory().init();
+    }
+
+    @TearDown
+    public void tearDown() {
+        webController.destroy();
+    }
+
+    // --------- Benchmarks --------- //
+    @Benchmark
+    public byte[] template() throws Exception {
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/contactList");
+        rc.setParamMap(MapUtil.mapIt("max", "10"));
+        webController.service(rc);
+        return rc.getResponseAsByArray();
+    }
+
+    @Benchmark
+    public byte[] json() throws Exception {
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/contactList.json");
+        rc.setParamMap(MapUtil.mapIt("max", "10"));
+        webController.service(rc);
+        return rc.getResponseAsByArray();
+    }
+
+    @Benchmark
+    public byte[] action() throws Exception {
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.POST, "/_actionResponse.json");
+        rc.setParamMap(MapUtil.mapIt("action", "updateContactName", "id", "3", "name", "Jennifer"));
+        webController.service(rc);
+        return rc.getResponseAsByArray();
+    }
+
+    @Benchmark
+    public byte[] staticFile() throws Exception {
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        webController.service(rc);
+        return rc.getResponseAsByArray();
+    }
+
+    @Benchmark
+    public byte[] webBundle() throws Exception {
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/_web_bundle_all.js");
+        webController.service(rc);
+        return rc.getResponseAsByArray();
+    }
+    // --------- /Benchmarks --------- //
+
+}
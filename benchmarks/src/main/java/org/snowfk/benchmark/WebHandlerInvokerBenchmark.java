@@ -0,0 +1,63 @@
+package org.snowfk.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snowfk.web.method.WebHandlerInvoker;
+import org.snowfk.web.method.WebHandlerInvokers;
+
+/**
+ * Per call overhead of the web handler invoker, compared with the plain Method.invoke (the pre invoker path).<br />
+ * 
+ * Run from the benchmarks folder: <code>java -jar target/benchmarks.jar WebHandlerInvokerBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WebHandlerInvokerBenchmark {
+
+    public static class Handlers {
+        public Object contactPage(Map m, Long contactId, String name) {
+            return contactId;
+        }
+    }
+
+    private Handlers          handlers;
+    private Method            method;
+    private WebHandlerInvoker invoker;
+    private Object[]          paramValues;
+
+    @Setup
+    public void setup() throws Exception {
+        handlers = new Handlers();
+        method = Handlers.class.getMethod("contactPage", Map.class, Long.class, String.class);
+        invoker = WebHandlerInvokers.create(method);
+        paramValues = new Object[] { null, 1L, "john" };
+    }
+
+    // --------- Benchmarks --------- //
+    @Benchmark
+    public Object methodInvoke() throws Exception {
+        return method.invoke(handlers, paramValues);
+    }
+
+    @Benchmark
+    public Object invoker() throws Exception {
+        return invoker.invoke(handlers, paramValues);
+    }
+    // --------- /Benchmarks --------- //
+}
@@ -0,0 +1,13 @@
+package org.snowfk.benchmark.app;
+
+import com.google.inject.AbstractModule;
+
+
+public class BenchAppConfig extends AbstractModule {
+
+    @Override
+    protected void configure() {
+    }
+
+
+}
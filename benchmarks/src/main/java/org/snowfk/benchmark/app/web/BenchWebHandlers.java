@@ -0,0 +1,36 @@
+package org.snowfk.benchmark.app.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.snowfk.util.MapUtil;
+import org.snowfk.web.method.WebActionHandler;
+import org.snowfk.web.method.WebModelHandler;
+import org.snowfk.web.method.argument.WebParam;
+
+import com.google.inject.Singleton;
+
+@Singleton
+public class BenchWebHandlers {
+
+    private List<Map> contacts = new ArrayList<Map>();
+
+    public BenchWebHandlers() {
+        for (long id = 1; id <= 20; id++) {
+            contacts.add(MapUtil.mapIt("id", id, "name", "Contact " + id, "email", "contact" + id + "@example.com"));
+        }
+    }
+
+    @WebModelHandler(startsWith = "/contactList")
+    public void contactList(Map m, @WebParam("max") Integer max) {
+        int size = (max != null) ? Math.min(max, contacts.size()) : contacts.size();
+        m.put("contacts", contacts.subList(0, size));
+    }
+
+    @WebActionHandler
+    public Map updateContactName(@WebParam("id") Long id, @WebParam("name") String name) {
+        // does not change the store, so that each invocation does the same work
+        return MapUtil.mapIt("id", id, "name", name);
+    }
+}
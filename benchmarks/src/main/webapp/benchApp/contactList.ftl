@@ -0,0 +1,6 @@
+<h1>Contacts (${m.contacts?size})</h1>
+<ul>
+[#list m.contacts as contact]
+  <li data-id="${contact.id}">${contact.name} - ${contact.email}</li>
+[/#list]
+</ul>
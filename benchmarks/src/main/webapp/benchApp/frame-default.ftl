@@ -0,0 +1,11 @@
+<!DOCTYPE html>
+<html>
+<head>
+<title>Bench App</title>
+[@webBundle path="/css/" type="css" /]
+</head>
+<body>
+[@includeFrameContent /]
+[@webBundle path="/js/" type="js" /]
+</body>
+</html>
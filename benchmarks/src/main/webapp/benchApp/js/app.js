@@ -0,0 +1,6 @@
+var app = app || {};
+app.contacts = {
+    show: function(id){
+        return "contact-" + id;
+    }
+};
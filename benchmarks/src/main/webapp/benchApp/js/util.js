@@ -0,0 +1,4 @@
+var util = util || {};
+util.escape = function(s){
+    return String(s).replace(/&/g, "&amp;").replace(/</g, "&lt;").replace(/>/g, "&gt;");
+};
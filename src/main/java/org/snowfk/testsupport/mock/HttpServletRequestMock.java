@@ -4,6 +4,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.security.Principal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -23,6 +25,7 @@ public class HttpServletRequestMock implements HttpServletRequest {
     private String contextPath = "";
     private Map    headers = new HashMap();
     private Map    parameterMap = new HashMap();
+    private int    parameterMapReadCount = 0;
     
     // --------- Additional Mock Methods --------- //
     public void setMethod(String method){
@@ -32,6 +35,27 @@ public class HttpServletRequestMock implements HttpServletRequest {
     public void setPathInfo(String pathInfo){
         this.pathInfo = pathInfo;
     }
+
+    /**
+     * Set a request header (the name is case insensitive). Date headers can be set as HTTP dates or as ms.
+     */
+    public void setHeader(String name, String value){
+        headers.put(name.toLowerCase(), value);
+    }
+
+    /**
+     * Set a request parameter (read through getParameterMap, unlike the RequestContextMock.setParamMap).
+     */
+    public void setParameter(String name, String value){
+        parameterMap.put(name, new String[] { value });
+    }
+
+    /**
+     * @return the number of getParameterMap calls (i.e., the number of times the params have been parsed)
+     */
+    public int getParameterMapReadCount(){
+        return parameterMapReadCount;
+    }
     // --------- /Additional Mock Methods --------- //
     
     @Override
@@ -108,6 +132,7 @@ public class HttpServletRequestMock implements HttpServletRequest {
 
     @Override
     public Map getParameterMap() {
+        parameterMapReadCount++;
         return parameterMap;
     }
 
@@ -226,14 +251,25 @@ public class HttpServletRequestMock implements HttpServletRequest {
 
     @Override
     public long getDateHeader(String arg0) {
-        // TODO Auto-generated method stub
-        return 0;
+        String value = getHeader(arg0);
+        if (value == null){
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+            try {
+                return format.parse(value).getTime();
+            } catch (ParseException pe) {
+                throw new IllegalArgumentException("Invalid date header " + arg0 + ": " + value);
+            }
+        }
     }
 
     @Override
     public String getHeader(String arg0) {
-        // TODO Auto-generated method stub
-        return null;
+        return (String) headers.get(arg0.toLowerCase());
     }
 
     @Override
@@ -243,8 +279,8 @@ public class HttpServletRequestMock implements HttpServletRequest {
 
     @Override
     public Enumeration getHeaders(String arg0) {
-        // TODO Auto-generated method stub
-        return null;
+        String value = getHeader(arg0);
+        return (value != null) ? Collections.enumeration(Collections.singletonList(value)) : Collections.enumeration(Collections.emptyList());
     }
 
     @Override
@@ -2,7 +2,11 @@ package org.snowfk.testsupport.mock;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
@@ -16,6 +20,12 @@ public class HttpServletResponseMock implements HttpServletResponse {
     private ServletOutputStreamMock outputStream;
     // will be built from outputStream in constructor
     private PrintWriter writer;
+
+    // lower case header name -> values
+    private Map<String, List<String>> headers = new HashMap<String, List<String>>();
+    private int status = SC_OK;
+    private String contentType;
+    private int contentLength = -1;
     
     @Inject
     public HttpServletResponseMock(ServletOutputStreamMock outputStream){
@@ -31,6 +41,40 @@ public class HttpServletResponseMock implements HttpServletResponse {
     public byte[] getResponseAsByteArray(){
         return outputStream.toByArray();
     }
+
+    public int getStatus(){
+        return status;
+    }
+
+    /**
+     * @return the first value of this header (case insensitive), or null if not set
+     */
+    public String getHeader(String name){
+        List<String> values = headers.get(name.toLowerCase());
+        return (values != null && values.size() > 0) ? values.get(0) : null;
+    }
+
+    public List<String> getHeaders(String name){
+        List<String> values = headers.get(name.toLowerCase());
+        return (values != null) ? values : new ArrayList<String>();
+    }
+
+    /**
+     * @return the content length set with setContentLength, or -1 if not set
+     */
+    public int getContentLength(){
+        return contentLength;
+    }
+
+    private void setHeaderValue(String name, String value, boolean add){
+        String key = name.toLowerCase();
+        List<String> values = headers.get(key);
+        if (values == null || !add){
+            values = new ArrayList<String>();
+            headers.put(key, values);
+        }
+        values.add(value);
+    }
     // --------- /Mock Methods --------- //
     
     
@@ -54,8 +98,7 @@ public class HttpServletResponseMock implements HttpServletResponse {
 
     @Override
     public String getContentType() {
-        // TODO Auto-generated method stub
-        return null;
+        return contentType;
     }
 
     @Override
@@ -106,14 +149,12 @@ public class HttpServletResponseMock implements HttpServletResponse {
 
     @Override
     public void setContentLength(int arg0) {
-        // TODO Auto-generated method stub
-
+        contentLength = arg0;
     }
 
     @Override
     public void setContentType(String arg0) {
-        // TODO Auto-generated method stub
-
+        contentType = arg0;
     }
 
     @Override
@@ -130,26 +171,22 @@ public class HttpServletResponseMock implements HttpServletResponse {
 
     @Override
     public void addDateHeader(String arg0, long arg1) {
-        // TODO Auto-generated method stub
-
+        setHeaderValue(arg0, String.valueOf(arg1), true);
     }
 
     @Override
     public void addHeader(String arg0, String arg1) {
-        // TODO Auto-generated method stub
-
+        setHeaderValue(arg0, arg1, true);
     }
 
     @Override
     public void addIntHeader(String arg0, int arg1) {
-        // TODO Auto-generated method stub
-
+        setHeaderValue(arg0, String.valueOf(arg1), true);
     }
 
     @Override
     public boolean containsHeader(String arg0) {
-        // TODO Auto-generated method stub
-        return false;
+        return headers.containsKey(arg0.toLowerCase());
     }
 
     @Override
@@ -178,14 +215,12 @@ public class HttpServletResponseMock implements HttpServletResponse {
 
     @Override
     public void sendError(int arg0) throws IOException {
-        // TODO Auto-generated method stub
-
+        status = arg0;
     }
 
     @Override
     public void sendError(int arg0, String arg1) throws IOException {
-        // TODO Auto-generated method stub
-
+        status = arg0;
     }
 
     @Override
@@ -196,32 +231,27 @@ public class HttpServletResponseMock implements HttpServletResponse {
 
     @Override
     public void setDateHeader(String arg0, long arg1) {
-        // TODO Auto-generated method stub
-
+        setHeaderValue(arg0, String.valueOf(arg1), false);
     }
 
     @Override
     public void setHeader(String arg0, String arg1) {
-        // TODO Auto-generated method stub
-
+        setHeaderValue(arg0, arg1, false);
     }
 
     @Override
     public void setIntHeader(String arg0, int arg1) {
-        // TODO Auto-generated method stub
-
+        setHeaderValue(arg0, String.valueOf(arg1), false);
     }
 
     @Override
     public void setStatus(int arg0) {
-        // TODO Auto-generated method stub
-
+        status = arg0;
     }
 
     @Override
     public void setStatus(int arg0, String arg1) {
-        // TODO Auto-generated method stub
-
+        status = arg0;
     }
 
 }
@@ -30,9 +30,21 @@ public class RequestContextMock extends RequestContext {
         super.setParamMap(params);
     }
     
+    public void setRequestParam(String name, String value){
+        req.setParameter(name, value);
+    }
+
+    public int getRequestParamMapReadCount(){
+        return req.getParameterMapReadCount();
+    }
+
     public void setPathInfo(String pathInfo){
         req.setPathInfo(pathInfo);
     }
+
+    public void setRequestHeader(String name, String value){
+        req.setHeader(name, value);
+    }
     
     public String getResponseAsString(){
         return res.getResponseAsString();
@@ -47,6 +59,18 @@ public class RequestContextMock extends RequestContext {
         return res.getResponseAsByteArray();
     }
     
+    public int getResponseStatus(){
+        return res.getStatus();
+    }
+
+    public String getResponseHeader(String name){
+        return res.getHeader(name);
+    }
+
+    public int getResponseContentLength(){
+        return res.getContentLength();
+    }
+
     public void init(){
         super.init();
     }
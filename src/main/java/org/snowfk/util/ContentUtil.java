@@ -0,0 +1,73 @@
+package org.snowfk.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Byte content utilities (digest and compression) used for the HTTP caching and encoding support.
+ */
+public class ContentUtil {
+
+    static private final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    /**
+     * @param content
+     * @return the lower case hexadecimal MD5 digest of the content
+     */
+    static public String md5Hex(byte[] content) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            return toHex(md.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // MD5 is mandatory for all java platforms
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static public String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_CHARS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_CHARS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param content
+     * @return the gzip (Content-Encoding: gzip) compressed content
+     */
+    static public byte[] gzip(byte[] content) {
+        try {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream(content.length / 2 + 32);
+            GZIPOutputStream gzipOut = new GZIPOutputStream(bout);
+            gzipOut.write(content);
+            gzipOut.close();
+            return bout.toByteArray();
+        } catch (IOException e) {
+            // cannot happen on a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param content
+     * @return the zlib (Content-Encoding: deflate) compressed content
+     */
+    static public byte[] deflate(byte[] content) {
+        try {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream(content.length / 2 + 32);
+            DeflaterOutputStream deflateOut = new DeflaterOutputStream(bout);
+            deflateOut.write(content);
+            deflateOut.close();
+            return bout.toByteArray();
+        } catch (IOException e) {
+            // cannot happen on a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -57,6 +57,41 @@ public class HttpRequestUtil {
         return pathInfo;
     }
 
+    /**
+     * @param req
+     * @param encoding
+     *            (e.g., "gzip")
+     * @return true if the Accept-Encoding header of the request accepts this encoding (explicitly or with "*", and
+     *         without q=0)
+     */
+    static public boolean acceptsEncoding(HttpServletRequest req, String encoding) {
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean accepted = false;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            String coding = parts[0].trim();
+            boolean match = coding.equalsIgnoreCase(encoding);
+            if (match || "*".equals(coding)) {
+                boolean zeroQ = false;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim().replace(" ", "");
+                    if (param.startsWith("q=") && param.substring(2).matches("0(\\.0*)?")) {
+                        zeroQ = true;
+                    }
+                }
+                // an explicit coding takes precedence over "*"
+                if (match) {
+                    return !zeroQ;
+                }
+                accepted = !zeroQ;
+            }
+        }
+        return accepted;
+    }
+
     /* --------- Cookie Methods --------- */
 
     static public String getCookieStringValue(HttpServletRequest req, String name) {
@@ -0,0 +1,185 @@
+package org.snowfk.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simple thread safe bounded cache with an approximate least recently used eviction policy.<br />
+ *
+ * By default, each entry weighs 1, so maxWeight is the max number of entries. Subclasses can override
+ * {@link #weigh(Object, Object)} to bound the cache by something else (e.g., the number of bytes).<br />
+ *
+ * The entries are in a ConcurrentHashMap, so, the gets do not lock. Each entry records when it was last accessed
+ * (relative to the puts), and when a put goes over the max weight, the least recently accessed entries are evicted
+ * until the cache is back under 90% of its max weight (so that the eviction cost is amortized over several puts).
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+    private final long                          maxWeight;
+    // weight the eviction goes down to
+    private final long                          evictWeight;
+    private final ConcurrentMap<K, Entry<K, V>> map;
+    private final AtomicLong                    weight      = new AtomicLong();
+
+    // incremented by each put. An access is stamped as happening after all the puts so far.
+    private final AtomicLong                    clock       = new AtomicLong();
+    private final Object                        evictLock   = new Object();
+
+    private final AtomicLong                    hitCount    = new AtomicLong();
+    private final AtomicLong                    missCount   = new AtomicLong();
+
+    public LruCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+        this.evictWeight = maxWeight - maxWeight / 10;
+        this.map = new ConcurrentHashMap<K, Entry<K, V>>();
+    }
+
+    /**
+     * @param key
+     * @return the value or null if not in the cache (counted as a hit or a miss)
+     */
+    public V get(K key) {
+        Entry<K, V> entry = map.get(key);
+        if (entry != null) {
+            long accessed = clock.get() + 1;
+            // avoid writing the (shared) entry when it is already stamped
+            if (entry.accessed != accessed) {
+                entry.accessed = accessed;
+            }
+            hitCount.incrementAndGet();
+            return entry.value;
+        } else {
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Put the value in the cache, and evict the least recently used entries if the cache is over its max weight.
+     * Values heavier than the max weight are not cached.
+     *
+     * @param key
+     * @param value
+     *            (cannot be null)
+     * @return the value for chainability
+     */
+    public V put(K key, V value) {
+        long valueWeight = weigh(key, value);
+        if (valueWeight > maxWeight) {
+            remove(key);
+            return value;
+        }
+
+        Entry<K, V> entry = new Entry<K, V>(key, value, valueWeight, clock.incrementAndGet());
+        Entry<K, V> oldEntry = map.put(key, entry);
+        long newWeight = weight.addAndGet((oldEntry != null) ? valueWeight - oldEntry.weight : valueWeight);
+        if (newWeight > maxWeight) {
+            evict();
+        }
+        return value;
+    }
+
+    public V remove(K key) {
+        Entry<K, V> oldEntry = map.remove(key);
+        if (oldEntry != null) {
+            weight.addAndGet(-oldEntry.weight);
+            return oldEntry.value;
+        }
+        return null;
+    }
+
+    public void clear() {
+        for (K key : map.keySet()) {
+            remove(key);
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Return the weight of this entry. Default is 1 (i.e., the max weight is the max number of entries).
+     */
+    protected long weigh(K key, V value) {
+        return 1;
+    }
+
+    private void evict() {
+        synchronized (evictLock) {
+            // another put might have already evicted
+            if (weight.get() <= maxWeight) {
+                return;
+            }
+            // snapshot the access stamps (they change during the sort otherwise)
+            List<Candidate<K, V>> candidates = new ArrayList<Candidate<K, V>>(map.size());
+            for (Entry<K, V> entry : map.values()) {
+                candidates.add(new Candidate<K, V>(entry, entry.accessed));
+            }
+            Collections.sort(candidates);
+            for (Candidate<K, V> candidate : candidates) {
+                if (weight.get() <= evictWeight) {
+                    break;
+                }
+                Entry<K, V> entry = candidate.entry;
+                // only if not replaced in the meantime
+                if (map.remove(entry.key, entry)) {
+                    weight.addAndGet(-entry.weight);
+                }
+            }
+        }
+    }
+
+    static private class Entry<K, V> {
+        final K       key;
+        final V       value;
+        final long    weight;
+        volatile long accessed;
+
+        Entry(K key, V value, long weight, long accessed) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.accessed = accessed;
+        }
+    }
+
+    static private class Candidate<K, V> implements Comparable<Candidate<K, V>> {
+        final Entry<K, V> entry;
+        final long        accessed;
+
+        Candidate(Entry<K, V> entry, long accessed) {
+            this.entry = entry;
+            this.accessed = accessed;
+        }
+
+        @Override
+        public int compareTo(Candidate<K, V> other) {
+            return (accessed < other.accessed) ? -1 : ((accessed == other.accessed) ? 0 : 1);
+        }
+    }
+
+}
@@ -249,6 +249,177 @@ public class ObjectUtil {
         return defaultValue;
     }
 
+    // --------- Value Converters --------- //
+    /**
+     * Convert the String values to a given class, as {@link #getValue(String, Class, Object)} and
+     * {@link #getValue(String[], Class, Object)} do, but with the conversion chosen once for the class (see
+     * {@link #getValueConverter(Class)}) rather than on each call.
+     */
+    public static abstract class ValueConverter<T> {
+
+        /**
+         * @return the converted value, or defaultValue if valueStr is null, empty (except for String), or cannot be
+         *         converted
+         */
+        public T convert(String valueStr, T defaultValue) {
+            if (valueStr == null || valueStr.length() == 0) {
+                return defaultValue;
+            }
+            try {
+                T value = convertNotEmpty(valueStr);
+                return (value != null) ? value : defaultValue;
+            } catch (Exception e) {
+                return defaultValue;
+            }
+        }
+
+        /**
+         * @return the typed array, or defaultValues if values is null or this is not an array converter
+         */
+        public T convert(String[] values, T defaultValues) {
+            return defaultValues;
+        }
+
+        /**
+         * @return the converted value, or null if it cannot be converted
+         */
+        protected abstract T convertNotEmpty(String valueStr) throws Exception;
+    }
+
+    /**
+     * @return the converter of the String values to this class (for the classes not supported by getValue, the
+     *         converter always returns the default value)
+     */
+    public static final <T> ValueConverter<T> getValueConverter(Class<T> cls) {
+        ValueConverter converter;
+        if (cls == String.class) {
+            converter = STRING_CONVERTER;
+        } else if (cls.isArray()) {
+            converter = new ArrayConverter(cls.getComponentType());
+        } else if (cls == Integer.class) {
+            converter = INTEGER_CONVERTER;
+        } else if (cls == Long.class) {
+            converter = LONG_CONVERTER;
+        } else if (cls == Float.class) {
+            converter = FLOAT_CONVERTER;
+        } else if (cls == Double.class) {
+            converter = DOUBLE_CONVERTER;
+        } else if (cls == Boolean.class) {
+            converter = BOOLEAN_CONVERTER;
+        } else if (cls.isEnum()) {
+            converter = new EnumConverter((Class) cls);
+        } else if (cls == Date.class) {
+            converter = DATE_CONVERTER;
+        } else {
+            converter = NULL_CONVERTER;
+        }
+        return converter;
+    }
+
+    private static final ValueConverter<String>  STRING_CONVERTER  = new ValueConverter<String>() {
+                                                                       @Override
+                                                                       public String convert(String valueStr, String defaultValue) {
+                                                                           return (valueStr != null) ? valueStr : defaultValue;
+                                                                       }
+
+                                                                       @Override
+                                                                       protected String convertNotEmpty(String valueStr) {
+                                                                           return valueStr;
+                                                                       }
+                                                                   };
+
+    private static final ValueConverter<Integer> INTEGER_CONVERTER = new ValueConverter<Integer>() {
+                                                                       @Override
+                                                                       protected Integer convertNotEmpty(String valueStr) throws Exception {
+                                                                           return numberFormat.parse(valueStr).intValue();
+                                                                       }
+                                                                   };
+
+    private static final ValueConverter<Long>    LONG_CONVERTER    = new ValueConverter<Long>() {
+                                                                       @Override
+                                                                       protected Long convertNotEmpty(String valueStr) throws Exception {
+                                                                           return numberFormat.parse(valueStr).longValue();
+                                                                       }
+                                                                   };
+
+    private static final ValueConverter<Float>   FLOAT_CONVERTER   = new ValueConverter<Float>() {
+                                                                       @Override
+                                                                       protected Float convertNotEmpty(String valueStr) throws Exception {
+                                                                           return numberFormat.parse(valueStr).floatValue();
+                                                                       }
+                                                                   };
+
+    private static final ValueConverter<Double>  DOUBLE_CONVERTER  = new ValueConverter<Double>() {
+                                                                       @Override
+                                                                       protected Double convertNotEmpty(String valueStr) throws Exception {
+                                                                           return numberFormat.parse(valueStr).doubleValue();
+                                                                       }
+                                                                   };
+
+    private static final ValueConverter<Boolean> BOOLEAN_CONVERTER = new ValueConverter<Boolean>() {
+                                                                       @Override
+                                                                       protected Boolean convertNotEmpty(String valueStr) {
+                                                                           return "true".equals(valueStr);
+                                                                       }
+                                                                   };
+
+    private static final ValueConverter<Date>    DATE_CONVERTER    = new ValueConverter<Date>() {
+                                                                       @Override
+                                                                       protected Date convertNotEmpty(String valueStr) throws Exception {
+                                                                           SimpleDateFormat sdf = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
+                                                                           return new java.util.Date(sdf.parse(valueStr).getTime());
+                                                                       }
+                                                                   };
+
+    private static final ValueConverter<Object>  NULL_CONVERTER    = new ValueConverter<Object>() {
+                                                                       @Override
+                                                                       protected Object convertNotEmpty(String valueStr) {
+                                                                           return null;
+                                                                       }
+                                                                   };
+
+    private static class EnumConverter extends ValueConverter<Enum> {
+        private final Class<Enum> enumClass;
+
+        EnumConverter(Class<Enum> enumClass) {
+            this.enumClass = enumClass;
+        }
+
+        @Override
+        protected Enum convertNotEmpty(String valueStr) {
+            return Enum.valueOf(enumClass, valueStr);
+        }
+    }
+
+    private static class ArrayConverter extends ValueConverter<Object> {
+        private final Class          componentClass;
+        private final ValueConverter componentConverter;
+
+        ArrayConverter(Class componentClass) {
+            this.componentClass = componentClass;
+            this.componentConverter = getValueConverter(componentClass);
+        }
+
+        @Override
+        protected Object convertNotEmpty(String valueStr) {
+            return convert(new String[] { valueStr }, null);
+        }
+
+        @Override
+        public Object convert(String[] values, Object defaultValues) {
+            if (values == null) {
+                return defaultValues;
+            }
+            Object resultArray = Array.newInstance(componentClass, values.length);
+            int i = 0;
+            for (String v : values) {
+                Array.set(resultArray, i++, componentConverter.convert(v, null));
+            }
+            return resultArray;
+        }
+    }
+    // --------- /Value Converters --------- //
+
     private static Set<Class> primitiveClasses = MapUtil.setIt(String.class, Integer.class, Long.class, Float.class,
                                                                        Boolean.class);
 
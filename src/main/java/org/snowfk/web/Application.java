@@ -1,13 +1,24 @@
 package org.snowfk.web;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import javax.inject.Singleton;
 
@@ -15,6 +26,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snowfk.SnowRuntimeException;
 import org.snowfk.annotation.Nullable;
+import org.snowfk.util.LruCache;
 import org.snowfk.web.db.hibernate.HibernateSessionFactoryBuilder;
 import org.snowfk.web.method.WebActionHandler;
 import org.snowfk.web.method.WebActionHandlerRef;
@@ -28,11 +40,13 @@ import org.snowfk.web.method.WebTemplateDirectiveHandler;
 import org.snowfk.web.method.WebTemplateDirectiveHandlerRef;
 import org.snowfk.web.method.argument.WebParameterParser;
 import org.snowfk.web.names.WebHandlers;
-import org.snowfk.web.renderer.DefaultJsonRenderer;
+import org.snowfk.web.names.WebModelExecutor;
+import org.snowfk.web.renderer.JsonRenderer;
 import org.snowfk.web.renderer.freemarker.FreemarkerTemplateRenderer;
 import org.snowfk.web.renderer.freemarker.TemplateDirectiveProxy;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 @Singleton
 public class Application {
@@ -44,6 +58,9 @@ public class Application {
     
     static final String                                             PATH_ACTION_RESPONSE_JSON  = "/_actionResponse";
 
+    // negative result marker for the webExceptionRefCache
+    static private final Object                                     NO_WEB_EXCEPTION_REF       = new Object();
+
     // just to make sure we initialize only onces
     private boolean                                                 initialized                = false;
 
@@ -60,13 +77,16 @@ public class Application {
     private WebParameterParser[]                                    webParameterParsers;
     
 
+    @Inject
+    private HttpWriter                                              httpWriter;
+
     @Inject
     private FreemarkerTemplateRenderer                              freemarkerRenderer;
     // private FreemarkerRenderer freemarkerRenderer;
 
-    // TODO: need to use just the JsonRenderer when it will be an interface.
+    // bound to the StreamingJsonRenderer by default (see DefaultApplicationModule)
     @Inject
-    private DefaultJsonRenderer                                     jsonRenderer;
+    private JsonRenderer                                            jsonRenderer;
 
     @Inject(optional = true)
     @Nullable
@@ -74,18 +94,71 @@ public class Application {
     private Object[]                                                webHandlers;
 
     private String[] leafPaths;
+
+    // will be injected from .properties file (0 to disable)
+    private int                                                     webModelRouteCacheSize     = 1000;
+
+    // will be injected from .properties file (snow.earlyFlush, only for the pages that opt in, see isEarlyFlush)
+    private boolean                                                 earlyFlush                 = false;
+
+    // will be injected from .properties file (max threads running the parallel WebModelHandlers)
+    private int                                                     webModelThreadPoolSize     = 10;
+
+    // runs the @WebModelHandler(parallel=true) handlers (if not bound, created when at least one is registered)
+    @Inject(optional = true)
+    @WebModelExecutor
+    private ExecutorService                                         webModelExecutor;
+
+    // binds the RequestContext (and the Hibernate session in view) to the webModelExecutor threads
+    @Inject
+    private RequestThreadBinder                                     requestThreadBinder;
+
+    // true if the webModelExecutor was created by this Application (and therefore needs to be shutdown by it)
+    private boolean                                                 ownWebModelExecutor        = false;
+
+    // resourcePath -> ordered WebModelHandlerRefs to invoke (built on demand, LRU bounded)
+    private LruCache<String, List<WebModelHandlerRef>>              webModelRouteCache;
     
     // --------- Populated During Initialization --------- //
     private Map<String, WebModelHandlerRef>                         webModelByStartsWithMap    = new HashMap<String, WebModelHandlerRef>();
     private List<WebModelHandlerRef>                                webModelRefList            = new ArrayList<WebModelHandlerRef>();
+    private RouteIndex<WebModelHandlerRef>                          webModelMatchesIndex       = new RouteIndex<WebModelHandlerRef>();
     private Map<String, WebActionHandlerRef>                        webActionDic               = new HashMap<String, WebActionHandlerRef>();
     private List<WebFileHandlerRef>                                 webFileList                = new ArrayList<WebFileHandlerRef>();
+    private Map<String, List<WebFileHandlerRef>>                    webFileByExtMap            = new HashMap<String, List<WebFileHandlerRef>>();
     private Map<Class<? extends Throwable>, WebExceptionHandlerRef> webExceptionHanderMap      = new HashMap<Class<? extends Throwable>, WebExceptionHandlerRef>();
+    // concrete Throwable class -> resolved WebExceptionHandlerRef or NO_WEB_EXCEPTION_REF (built on demand)
+    private ConcurrentMap<Class<? extends Throwable>, Object>       webExceptionRefCache       = new ConcurrentHashMap<Class<? extends Throwable>, Object>();
     private Map<Class<? extends Annotation>, WebParameterParser>    webParameterParserMap      = new HashMap<Class<? extends Annotation>, WebParameterParser>();
     private List<TemplateDirectiveProxy>                            templateDirectiveProxyList = new ArrayList<TemplateDirectiveProxy>();
 
     // --------- /Populated During Initialization --------- //
 
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectWebModelRouteCacheSize(@Named("snow.webModelRouteCacheSize") String size) {
+        try {
+            webModelRouteCacheSize = Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.webModelRouteCacheSize property : " + size + ".  Will default to " + webModelRouteCacheSize);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectWebModelThreadPoolSize(@Named("snow.webModelThreadPoolSize") String size) {
+        try {
+            webModelThreadPoolSize = Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.webModelThreadPoolSize property : " + size + ".  Will default to " + webModelThreadPoolSize);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectEarlyFlush(@Named("snow.earlyFlush") String flush) {
+        earlyFlush = "true".equalsIgnoreCase(flush.trim());
+    }
+    // --------- /Injects --------- //
+
     // --------- LifeCycle --------- //
     public void init() {
         if (!initialized) {
@@ -110,6 +183,24 @@ public class Application {
                 }
             }
 
+            if (webModelExecutor == null && hasParallelWebModelRef()) {
+                webModelExecutor = Executors.newFixedThreadPool(webModelThreadPoolSize, new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "snow-webmodel-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                ownWebModelExecutor = true;
+            }
+
+            if (webModelRouteCacheSize > 0) {
+                webModelRouteCache = new LruCache<String, List<WebModelHandlerRef>>(webModelRouteCacheSize);
+            }
+
             // initialize freemarker
             freemarkerRenderer.init();
 
@@ -127,29 +218,97 @@ public class Application {
     }
 
     public void shutdown() {
+        if (ownWebModelExecutor) {
+            webModelExecutor.shutdown();
+        }
         if (webApplicationLifeCycle != null) {
             webApplicationLifeCycle.shutdown();
         }
     }
 
+    /**
+     * @return true when the application can serve requests at full speed (i.e., the template warmup, if any, is
+     *         done)
+     */
+    public boolean isReady() {
+        return freemarkerRenderer.isReady();
+    }
+
     // --------- LifeCycle --------- //
 
     // --------- Content Processing --------- //
     public void processTemplate(RequestContext rc) throws Throwable {
+        processTemplate(rc, false);
+    }
+
+    /**
+     * Process the web models and render the template (or the frame) of this request.<br />
+     * <br />
+     * 
+     * When earlyFlush (which should be true only when the rc writer streams to the client, see
+     * {@link #isEarlyFlush(RequestContext)}), the web models are deferred to the [@includeFrameContent /] of the frame,
+     * which first flushes the frame head (e.g., the [@webBundle] tags), so that the browser can start to load the css
+     * and js while the web models run.<br />
+     * Note: in this mode, the frame head cannot use the "m" model, and since the response is committed early, an
+     * exception of the web models cannot be turned into an error page anymore.
+     */
+    public void processTemplate(RequestContext rc, boolean earlyFlush) throws Throwable {
         // build the new model
         Map rootModel = rc.getRootModel();
 
         Map m = rc.getWebMap();
         
-        processWebModels(m,rc);
-        
         String path = rc.getFramePath();
+        if (earlyFlush && path != null) {
+            rc.setWebModelsPending(true);
+        } else {
+            processWebModels(m,rc);
+        }
+        
         if (path == null){
             path = rc.getResourcePath();
             path = getTemplatePath(path);
         }
         
         freemarkerRenderer.render(path, rootModel, rc.getWriter());
+
+        // in case the frame does not have an [@includeFrameContent /]
+        processPendingWebModels(rc);
+        if (rc.getWebModelsError() != null) {
+            throw rc.getWebModelsError();
+        }
+    }
+
+    /**
+     * @return true if the template of this request can be flushed early (snow.earlyFlush, the request has a frame, and
+     *         one of its WebModelHandlers opted in with {@link WebModelHandler#earlyFlush()})
+     */
+    public boolean isEarlyFlush(RequestContext rc) {
+        if (!earlyFlush || rc.getFramePath() == null) {
+            return false;
+        }
+        for (WebModelHandlerRef webModelRef : getWebModelRefs(rc)) {
+            if (webModelRef.isEarlyFlush()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Process the web models deferred by the early flush mode (called by the [@includeFrameContent /]). Does nothing if
+     * there are none. The error, if any, is kept in the RequestContext (webModelsError) and rethrown once the frame is
+     * rendered.
+     */
+    public void processPendingWebModels(RequestContext rc) {
+        if (rc.isWebModelsPending()) {
+            rc.setWebModelsPending(false);
+            try {
+                processWebModels(rc.getWebMap(), rc);
+            } catch (Throwable t) {
+                rc.setWebModelsError(t);
+            }
+        }
     }
     
     public void processJson(RequestContext rc) throws Throwable {
@@ -214,82 +373,164 @@ public class Application {
         return response;
     }
 
+    /**
+     * Invoke the WebModelHandlers in order. Consecutive parallel WebModelHandlers are run concurrently (on the
+     * webModelExecutor), and all of them complete before the next non parallel WebModelHandler is invoked.
+     */
     void processWebModels(Map m, RequestContext rc) throws Throwable {
-        // get the rootModelBuilder
-        WebModelHandlerRef rootWmr = getWebModelRef("/");
-        if (rootWmr != null) {
-            invokeWebModelRef(rootWmr, m, rc);
-        }
-        
-        
-        StringBuilder pathBuilder = new StringBuilder();
-        String[] resourcePaths = rc.getResourcePaths();
-        for (int i = 0; i < resourcePaths.length; i++) {
-            String path = pathBuilder.append('/').append(resourcePaths[i]).toString();
-            WebModelHandlerRef webModelRef = getWebModelRef(path);
-            invokeWebModelRef(webModelRef, m, rc);
-        }        
+        List<WebModelHandlerRef> webModelRefs = getWebModelRefs(rc);
 
-        // Match and process the "matches" webModels
-        List<WebModelHandlerRef> matchWebModelRefs = getMatchWebModelRef(pathBuilder.toString());
-        for (WebModelHandlerRef webModelRef : matchWebModelRefs) {
-            invokeWebModelRef(webModelRef, m, rc);
+        List<WebModelHandlerRef> parallelRefs = null;
+        for (WebModelHandlerRef webModelRef : webModelRefs) {
+            if (webModelExecutor != null && webModelRef.isParallel()) {
+                if (parallelRefs == null) {
+                    parallelRefs = new ArrayList<WebModelHandlerRef>();
+                }
+                parallelRefs.add(webModelRef);
+            } else {
+                if (parallelRefs != null) {
+                    invokeParallelWebModelRefs(parallelRefs, m, rc);
+                    parallelRefs = null;
+                }
+                invokeWebModelRef(webModelRef, m, rc);
+            }
+        }
+        if (parallelRefs != null) {
+            invokeParallelWebModelRefs(parallelRefs, m, rc);
         }
     }
 
-    private void invokeWebModelRef(WebModelHandlerRef webModelRef, Map m, RequestContext rc) throws Throwable {
+    /**
+     * Run the parallel WebModelHandlers concurrently (the last one on the calling thread) with a synchronized view of
+     * the model, wait for all of them, and then process their exceptions (if any) in order on the calling thread.
+     */
+    private void invokeParallelWebModelRefs(List<WebModelHandlerRef> parallelRefs, Map m, final RequestContext rc)
+                            throws Throwable {
+        if (parallelRefs.size() == 1) {
+            invokeWebModelRef(parallelRefs.get(0), m, rc);
+            return;
+        }
 
-        if (webModelRef != null) {
+        // the params and cookies are lazily parsed in non thread safe maps, so, parse them before sharing the rc
+        rc.initLazyState();
+
+        final Map syncModel = Collections.synchronizedMap(m);
+        int last = parallelRefs.size() - 1;
+
+        List<Future<Throwable>> futures = new ArrayList<Future<Throwable>>(last);
+        for (int i = 0; i < last; i++) {
+            final WebModelHandlerRef webModelRef = parallelRefs.get(i);
+            futures.add(webModelExecutor.submit(requestThreadBinder.wrap(rc, new Callable<Throwable>() {
+                @Override
+                public Throwable call() {
+                    try {
+                        doInvokeWebModelRef(webModelRef, syncModel, rc);
+                        return null;
+                    } catch (Throwable t) {
+                        return t;
+                    }
+                }
+            })));
+        }
 
-            boolean invokeWebModel = true;
+        Throwable lastError = null;
+        try {
+            doInvokeWebModelRef(parallelRefs.get(last), syncModel, rc);
+        } catch (Throwable t) {
+            lastError = t;
+        }
 
+        List<Throwable> errors = new ArrayList<Throwable>();
+        for (Future<Throwable> future : futures) {
+            Throwable t;
             try {
-                if (webHandlerInterceptor != null) {
-                    invokeWebModel = webHandlerInterceptor.before(webModelRef.getMethod(), rc);
-                }
+                t = future.get();
+            } catch (ExecutionException e) {
+                t = e.getCause();
+            }
+            if (t != null) {
+                errors.add(t);
+            }
+        }
+        if (lastError != null) {
+            errors.add(lastError);
+        }
 
-                if (invokeWebModel) {
-                    webModelRef.invokeWebModel(m, rc);
-                }
+        for (Throwable t : errors) {
+            processWebExceptionHandler(t, rc);
+        }
+    }
 
-                if (webHandlerInterceptor != null) {
-                    webHandlerInterceptor.after(webModelRef.getMethod(), rc);
-                }
+    private void invokeWebModelRef(WebModelHandlerRef webModelRef, Map m, RequestContext rc) throws Throwable {
+
+        if (webModelRef != null) {
+            try {
+                doInvokeWebModelRef(webModelRef, m, rc);
             } catch (Throwable e) {
                 processWebExceptionHandler(e, rc);
             }
+        }
+    }
+
+    private void doInvokeWebModelRef(WebModelHandlerRef webModelRef, Map m, RequestContext rc) throws Throwable {
+        boolean invokeWebModel = true;
+
+        if (webHandlerInterceptor != null) {
+            invokeWebModel = webHandlerInterceptor.before(webModelRef.getMethod(), rc);
+        }
+
+        if (invokeWebModel) {
+            webModelRef.invokeWebModel(m, rc);
+        }
 
+        if (webHandlerInterceptor != null) {
+            webHandlerInterceptor.after(webModelRef.getMethod(), rc);
         }
     }
 
+    private boolean hasParallelWebModelRef() {
+        for (WebModelHandlerRef webModelRef : webModelRefList) {
+            if (webModelRef.isParallel()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Invoke the WebFileHandler for this request (if any). If the WebFileHandler returns a File, it is written with
+     * the HttpWriter (which supports the conditional and range requests).
+     * 
+     * @return true if a WebFileHandler processed the request
+     */
     boolean processWebFile(RequestContext rc) throws Throwable{
         WebFileHandlerRef webFileRef = getWebFileRef(rc.getResourcePath());
         if (webFileRef != null){
-            webFileRef.invokeWebFile(rc);
+            Object result = webFileRef.invokeWebFile(rc);
+            if (result instanceof File) {
+                httpWriter.writeFile(rc, (File) result, false, null);
+            }
             return true;
         }else{
             return false;
         }
     }
     
+    // Note: the web handler invokers throw the web handler exceptions as is (not wrapped)
     void processWebExceptionHandler(Throwable e, RequestContext rc) throws Throwable {
-        Throwable t = null;
-
-        if (e instanceof InvocationTargetException) {
-            t = ((InvocationTargetException) e).getCause();
+        // the aborts (e.g., from an auth WebHandlerInterceptor) are for the WebController, not the WebExceptionHandlers
+        if (e instanceof AbortWithHttpStatusException || e instanceof AbortWithHttpRedirectException) {
+            throw e;
         }
 
-        if (t != null) {
-            WebExceptionHandlerRef ref = getWebExceptionRef(t.getClass());
+        WebExceptionHandlerRef ref = getWebExceptionRef(e.getClass());
 
-            // if we find the issue
-            if (ref != null) {
-                ref.invokeWebExceptionHandler(t, rc);
-                // TODO: miwht want to try catch, and throw the cause as well
-                // (to be consistent
-            } else {
-                throw t;
-            }
+        // if we find the issue
+        if (ref != null) {
+            rc.setHandledException(e);
+            ref.invokeWebExceptionHandler(e, rc);
+            // TODO: miwht want to try catch, and throw the cause as well
+            // (to be consistent
         } else {
             throw e;
         }
@@ -316,6 +557,74 @@ public class Application {
     }
     
     // --------- Ref Getters --------- //
+    /**
+     * Return the ordered list of WebModelHandlerRefs to invoke for this request resource path (the root "/" one,
+     * then the startsWith ones for each path prefix, and then the "matches" ones).<br />
+     * 
+     * Since it depends only on the resourcePath, the result is cached in the webModelRouteCache.
+     */
+    List<WebModelHandlerRef> getWebModelRefs(RequestContext rc) {
+        String resourcePath = rc.getResourcePath();
+
+        List<WebModelHandlerRef> webModelRefs = null;
+        if (webModelRouteCache != null && resourcePath != null) {
+            webModelRefs = webModelRouteCache.get(resourcePath);
+        }
+
+        if (webModelRefs == null) {
+            webModelRefs = new ArrayList<WebModelHandlerRef>();
+
+            // get the rootModelBuilder
+            WebModelHandlerRef rootWmr = getWebModelRef("/");
+            if (rootWmr != null) {
+                webModelRefs.add(rootWmr);
+            }
+
+            StringBuilder pathBuilder = new StringBuilder();
+            String[] resourcePaths = rc.getResourcePaths();
+            for (int i = 0; i < resourcePaths.length; i++) {
+                String path = pathBuilder.append('/').append(resourcePaths[i]).toString();
+                WebModelHandlerRef webModelRef = getWebModelRef(path);
+                if (webModelRef != null) {
+                    webModelRefs.add(webModelRef);
+                }
+            }
+
+            // Match the "matches" webModels
+            webModelRefs.addAll(getMatchWebModelRef(pathBuilder.toString()));
+
+            webModelRefs = Collections.unmodifiableList(webModelRefs);
+            if (webModelRouteCache != null && resourcePath != null) {
+                webModelRouteCache.put(resourcePath, webModelRefs);
+            }
+        }
+
+        return webModelRefs;
+    }
+
+    /**
+     * @return the page cache ttl (in seconds) set by the WebModelHandlers of this request (the smallest one wins), or
+     *         -1 if none of them set it
+     */
+    public int getPageCacheTtl(RequestContext rc) {
+        int ttl = -1;
+        for (WebModelHandlerRef webModelRef : getWebModelRefs(rc)) {
+            int refTtl = webModelRef.getPageCacheTtl();
+            if (refTtl >= 0 && (ttl < 0 || refTtl < ttl)) {
+                ttl = refTtl;
+            }
+        }
+        return ttl;
+    }
+
+    public long getWebModelRouteCacheHitCount() {
+        return (webModelRouteCache != null) ? webModelRouteCache.getHitCount() : 0;
+    }
+
+    public long getWebModelRouteCacheMissCount() {
+        return (webModelRouteCache != null) ? webModelRouteCache.getMissCount() : 0;
+    }
+
     WebActionHandlerRef getWebActionRef(String actionName) {
         return webActionDic.get(actionName);
     }
@@ -325,31 +634,41 @@ public class Application {
     }
 
     List<WebModelHandlerRef> getMatchWebModelRef(String fullPriPath) {
-        List<WebModelHandlerRef> matchWebModelRefs = new ArrayList<WebModelHandlerRef>();
-
-        for (WebModelHandlerRef webModelRef : webModelRefList) {
-            // System.out.println("WebModule.getMatchWebModeulRef: " +
-            // webModelRef.toString());
-            boolean match = webModelRef.matchesPath(fullPriPath);
-            if (match) {
-                matchWebModelRefs.add(webModelRef);
-            }
-        }
-
-        return matchWebModelRefs;
+        // the index narrows the candidates by literal prefix before running the regexes, 
+        // and returns them in the registration order.
+        return webModelMatchesIndex.match(fullPriPath);
     }
 
     WebFileHandlerRef getWebFileRef(String path) {
-        for (WebFileHandlerRef webFileRef : webFileList) {
-            boolean match = webFileRef.matchesPath(path);
-            if (match) {
-                return webFileRef;
+        // only the WebFileHandlerRefs registered for this extension are candidates
+        int lastDotIdx = path.lastIndexOf('.');
+        String ext = (lastDotIdx != -1) ? path.substring(lastDotIdx).toLowerCase() : "";
+        List<WebFileHandlerRef> webFileRefs = webFileByExtMap.get(ext);
+
+        if (webFileRefs != null) {
+            for (WebFileHandlerRef webFileRef : webFileRefs) {
+                if (webFileRef.matchesPatterns(path)) {
+                    return webFileRef;
+                }
             }
         }
         return null;
     }
 
     WebExceptionHandlerRef getWebExceptionRef(Class<? extends Throwable> exceptionClass) {
+        // the resolution (including the "not found") is cached per concrete exception class
+        Object ref = webExceptionRefCache.get(exceptionClass);
+        if (ref == null) {
+            ref = resolveWebExceptionRef(exceptionClass);
+            if (ref == null) {
+                ref = NO_WEB_EXCEPTION_REF;
+            }
+            webExceptionRefCache.put(exceptionClass, ref);
+        }
+        return (ref != NO_WEB_EXCEPTION_REF) ? (WebExceptionHandlerRef) ref : null;
+    }
+
+    private WebExceptionHandlerRef resolveWebExceptionRef(Class<? extends Throwable> exceptionClass) {
         WebExceptionHandlerRef ref = null;
 
         do {
@@ -464,6 +783,10 @@ public class Application {
         WebModelHandlerRef webModelRef = new WebModelHandlerRef(webHandler, m, webParameterParserMap, webModel);
         webModelRefList.add(webModelRef);
 
+        for (Pattern pattern : webModelRef.getMatchesPatterns()) {
+            webModelMatchesIndex.add(pattern, webModelRef);
+        }
+
         String startWithArray[] = webModel.startsWith();
         for (String startsWith : startWithArray) {
             webModelByStartsWithMap.put(startsWith, webModelRef);
@@ -490,17 +813,31 @@ public class Application {
         // System.out.println("WebModule.registerWebAction: " + getName() + ":"
         // + actionName);
         // add this object and method to the list
-        webActionDic.put(actionName, new WebActionHandlerRef(webHandler, m, webParameterParserMap, webAction));
+        WebActionHandlerRef webActionRef = new WebActionHandlerRef(webHandler, m, webParameterParserMap, webAction);
+        webActionDic.put(actionName, webActionRef);
     }
 
     private final void registerWebFile(Object webHandler, Method m, WebFileHandler webFile) {
         WebFileHandlerRef webFileRef = new WebFileHandlerRef(webHandler, m, webParameterParserMap, webFile);
         webFileList.add(webFileRef);
+
+        // index it by extension (the buckets keep the registration order)
+        for (String ext : webFileRef.getLowerCaseExts()) {
+            List<WebFileHandlerRef> webFileRefs = webFileByExtMap.get(ext);
+            if (webFileRefs == null) {
+                webFileRefs = new ArrayList<WebFileHandlerRef>();
+                webFileByExtMap.put(ext, webFileRefs);
+            }
+            if (!webFileRefs.contains(webFileRef)) {
+                webFileRefs.add(webFileRef);
+            }
+        }
     }
 
     private final void registerWebExceptionHandler(Object webHandler, Method m, WebExceptionHandler webExceptionHandler) {
         WebExceptionHandlerRef webExcpetionHandlerRef = new WebExceptionHandlerRef(webHandler, m, webParameterParserMap, webExceptionHandler);
         webExceptionHanderMap.put(webExcpetionHandlerRef.getThrowableClass(), webExcpetionHandlerRef);
+        webExceptionRefCache.clear();
         // webFileList.add(webFileRef);
     }
 
@@ -8,6 +8,7 @@ import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 import javax.servlet.ServletContext;
 
@@ -113,6 +114,20 @@ public class ApplicationLoader {
                                     + e.getMessage());
         }
 
+        // snow.virtualThreads=true runs each request (and the parallel web models) on a virtual thread, which
+        // requires the async request pipeline (on by default in this mode)
+        ExecutorService virtualThreadExecutor = null;
+        if ("true".equalsIgnoreCase(appProperties.getProperty("snow.virtualThreads"))) {
+            virtualThreadExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            if (virtualThreadExecutor != null) {
+                if (appProperties.getProperty("snow.asyncRequests") == null) {
+                    appProperties.setProperty("snow.asyncRequests", "true");
+                }
+            } else {
+                logger.warn("snow.virtualThreads is true but this runtime does not support virtual threads (Java 21+). Will use platform threads.");
+            }
+        }
+
         /*--------- /Load the Properties ---------*/
 
         /*--------- Load WebApplication ---------*/
@@ -140,6 +155,10 @@ public class ApplicationLoader {
             defaultModules.add(new DefaultHibernateModule());
         }
 
+        if (virtualThreadExecutor != null) {
+            defaultModules.add(new VirtualThreadModule(virtualThreadExecutor));
+        }
+
         
         Module combineAppModule;
         if (applicationModuleClass != null) {
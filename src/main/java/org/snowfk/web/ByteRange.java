@@ -0,0 +1,108 @@
+package org.snowfk.web;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A satisfiable byte range of an HTTP "Range: bytes=..." request header, with inclusive start and end positions.
+ */
+public class ByteRange {
+
+    // over this number of ranges, the Range header is ignored (i.e., the whole content is sent)
+    static final int  MAX_RANGES = 16;
+
+    private final long start;
+    private final long end;
+
+    public ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+
+    /**
+     * @param contentLength
+     * @return the Content-Range header value for this range (e.g., "bytes 0-499/1234")
+     */
+    public String getContentRange(long contentLength) {
+        return new StringBuilder("bytes ").append(start).append('-').append(end).append('/').append(contentLength)
+                                .toString();
+    }
+
+    /**
+     * Parse a Range header value for a content of contentLength bytes.
+     * 
+     * @param rangeHeader
+     *            (e.g., "bytes=0-499,1000-", "bytes=-500")
+     * @param contentLength
+     * @return the satisfiable ranges (in request order), an empty list if none is satisfiable (416), or null if the
+     *         header is invalid or should be ignored (and the whole content sent)
+     */
+    static public List<ByteRange> parse(String rangeHeader, long contentLength) {
+        if (rangeHeader == null) {
+            return null;
+        }
+        String value = rangeHeader.trim();
+        if (!value.startsWith("bytes=")) {
+            return null;
+        }
+
+        String[] specs = value.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<ByteRange>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dashIdx = spec.indexOf('-');
+            if (dashIdx == -1) {
+                return null;
+            }
+            String startStr = spec.substring(0, dashIdx).trim();
+            String endStr = spec.substring(dashIdx + 1).trim();
+
+            long start;
+            long end;
+            try {
+                if (startStr.length() == 0) {
+                    // suffix range, the last n bytes
+                    long suffixLength = Long.parseLong(endStr);
+                    if (suffixLength < 0) {
+                        return null;
+                    }
+                    if (suffixLength == 0) {
+                        continue;
+                    }
+                    start = Math.max(0, contentLength - suffixLength);
+                    end = contentLength - 1;
+                } else {
+                    start = Long.parseLong(startStr);
+                    end = (endStr.length() == 0) ? contentLength - 1 : Math.min(Long.parseLong(endStr), contentLength - 1);
+                    if (start < 0 || (endStr.length() > 0 && Long.parseLong(endStr) < start)) {
+                        return null;
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            // unsatisfiable ranges are skipped
+            if (start < contentLength && start <= end) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        return ranges;
+    }
+}
@@ -13,6 +13,10 @@ import org.snowfk.web.method.WebTemplateDirectiveHandler;
 import org.snowfk.web.names.ApplicationPackageBase;
 import org.snowfk.web.names.WebHandlerClasses;
 import org.snowfk.web.names.WebHandlers;
+import org.snowfk.web.renderer.DefaultWebBundleMinifier;
+import org.snowfk.web.renderer.JsonRenderer;
+import org.snowfk.web.renderer.StreamingJsonRenderer;
+import org.snowfk.web.renderer.WebBundleMinifier;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
@@ -35,6 +39,8 @@ public class DefaultApplicationModule extends AbstractModule {
         bind(FramePathResolver.class).to(DefaultFramePathResolver.class);
         bind(ResourcePathResolver.class).to(DefaultResourcePathResolver.class);
         bind(ActionNameResolver.class).to(DefaultActionNameResolver.class);
+        bind(WebBundleMinifier.class).to(DefaultWebBundleMinifier.class);
+        bind(JsonRenderer.class).to(StreamingJsonRenderer.class);
 
         if (applicationPackageBase != null) {
             bind(String.class).annotatedWith(ApplicationPackageBase.class).toInstance(applicationPackageBase);
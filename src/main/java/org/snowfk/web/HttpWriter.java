@@ -3,11 +3,16 @@ package org.snowfk.web;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.ServletContext;
@@ -17,6 +22,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snowfk.util.FileUtil;
+import org.snowfk.util.HttpRequestUtil;
 import org.snowfk.util.MapUtil;
 
 import com.google.inject.Inject;
@@ -44,15 +50,240 @@ public class HttpWriter {
         return contentType;
     }
 
+    /**
+     * Write the file bytes as is (no character decoding/encoding, even for text files, which are expected to be in
+     * the response character encoding, UTF-8 by default) with the Content-Length of the file.
+     */
     public void writeFile(RequestContext rc,File file, boolean cache, Map options) throws Throwable{
-        String contentType = FileUtil.getExtraMimeType(file.getAbsolutePath());
-        
-        if (contentType != null && (contentType.startsWith("text") || contentType.indexOf("javascript") != -1)) {
-           FileReader reader = new FileReader(file);
-           writeStringContent(rc, file.getName(), reader, cache, options);
-        }else{
-            InputStream fileIs = new FileInputStream(file);
-            writeBinaryContent(rc,file.getName(),fileIs,cache,options);
+        // the file validators (if not given by the caller)
+        options = withValidators(options, getFileEtag(file), file.lastModified());
+
+        if (writeNotModified(rc, file.getName(), cache, options)) {
+            return;
+        }
+
+        setHeaders(rc, file.getName(), cache, options);
+
+        HttpServletResponse res = rc.getRes();
+        long length = file.length();
+        res.setHeader("Accept-Ranges", "bytes");
+
+        List<ByteRange> ranges = getRanges(rc.getReq(), length, options);
+        if (ranges != null && ranges.size() == 0) {
+            res.setHeader("Content-Range", "bytes */" + length);
+            res.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        String contentType = res.getContentType();
+        String boundary = setRangeHeaders(res, ranges, length);
+
+        FileInputStream fileIs = new FileInputStream(file);
+        OutputStream os = res.getOutputStream();
+        try {
+            FileChannel channel = fileIs.getChannel();
+            if (ranges == null) {
+                transferFile(channel, 0, length, os);
+            } else if (boundary == null) {
+                ByteRange range = ranges.get(0);
+                transferFile(channel, range.getStart(), range.getLength(), os);
+            } else {
+                // positional transfers, so, each range is read from its position (not from the beginning of the file)
+                for (ByteRange range : ranges) {
+                    os.write(getPartHeader(boundary, contentType, range, length));
+                    transferFile(channel, range.getStart(), range.getLength(), os);
+                    os.write(CRLF);
+                }
+                os.write(getPartsEnd(boundary));
+            }
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        } finally {
+            os.close();
+            fileIs.close();
+        }
+    }
+
+    // --------- Range Request --------- //
+    static private final byte[] CRLF = { '\r', '\n' };
+
+    /**
+     * @return the requested ranges (empty if not satisfiable), or null if the whole content must be sent (no or
+     *         invalid Range header, not a GET, or If-Range does not match the current etag/lastModified)
+     */
+    private List<ByteRange> getRanges(HttpServletRequest req, long length, Map options) {
+        String rangeHeader = req.getHeader("Range");
+        if (rangeHeader == null || !"GET".equals(req.getMethod())) {
+            return null;
+        }
+
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange != null) {
+            ifRange = ifRange.trim();
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                // strong comparison for If-Range
+                if (!ifRange.equals(MapUtil.getNestedValue(options, "etag"))) {
+                    return null;
+                }
+            } else {
+                Long lastModified = MapUtil.getNestedValue(options, "lastModified", Long.class);
+                long ifRangeDate;
+                try {
+                    ifRangeDate = req.getDateHeader("If-Range");
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+                if (lastModified == null || lastModified / 1000 != ifRangeDate / 1000) {
+                    return null;
+                }
+            }
+        }
+
+        return ByteRange.parse(rangeHeader, length);
+    }
+
+    /**
+     * Set the status, Content-Range (single range) or multipart Content-Type (multiple ranges), and Content-Length for
+     * these ranges (or the whole content if null).
+     * 
+     * @return the multipart boundary, or null if the content is not multipart
+     */
+    static private String setRangeHeaders(HttpServletResponse res, List<ByteRange> ranges, long length)
+                            throws IOException {
+        String boundary = null;
+        if (ranges == null) {
+            setContentLength(res, length);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            res.setHeader("Content-Range", range.getContentRange(length));
+            setContentLength(res, range.getLength());
+        } else {
+            String contentType = res.getContentType();
+            boundary = Long.toHexString(System.nanoTime()) + Long.toHexString(length);
+            res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            res.setContentType("multipart/byteranges; boundary=" + boundary);
+            long multipartLength = 0;
+            for (ByteRange range : ranges) {
+                multipartLength += getPartHeader(boundary, contentType, range, length).length + range.getLength() + 2;
+            }
+            multipartLength += getPartsEnd(boundary).length;
+            setContentLength(res, multipartLength);
+        }
+        return boundary;
+    }
+
+    static private byte[] getPartHeader(String boundary, String contentType, ByteRange range, long length)
+                            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("--").append(boundary).append("\r\n");
+        if (contentType != null) {
+            sb.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        sb.append("Content-Range: ").append(range.getContentRange(length)).append("\r\n\r\n");
+        return sb.toString().getBytes("ISO-8859-1");
+    }
+
+    static private byte[] getPartsEnd(String boundary) throws IOException {
+        return ("--" + boundary + "--\r\n").getBytes("ISO-8859-1");
+    }
+    // --------- /Range Request --------- //
+
+    /**
+     * Write a cached StaticAsset, choosing the gzip or deflate variant if the client accepts it. Each variant gets its
+     * own ETag (the asset ETag with a "-gzip" or "-deflate" suffix), so that a cache never serves one for the other.<br />
+     * <br />
+     * 
+     * Range requests are served from the identity content (as writeFile does), since the ranges of a compressed
+     * variant would not be resumable across variants.
+     */
+    public void writeAsset(RequestContext rc, StaticAsset asset, boolean cache, Map options) throws Exception {
+        HttpServletRequest req = rc.getReq();
+        HttpServletResponse res = rc.getRes();
+        boolean rangeRequest = req.getHeader("Range") != null && "GET".equals(req.getMethod());
+
+        byte[] content = asset.getContent();
+        String encoding = null;
+        // the ranges are always of the identity content
+        if (!rangeRequest && asset.getGzipContent() != null && HttpRequestUtil.acceptsEncoding(req, "gzip")) {
+            encoding = "gzip";
+            content = asset.getGzipContent();
+        } else if (!rangeRequest && asset.getDeflateContent() != null && HttpRequestUtil.acceptsEncoding(req, "deflate")) {
+            encoding = "deflate";
+            content = asset.getDeflateContent();
+        }
+
+        options = withValidators(options, getEncodingEtag(asset.getEtag(), encoding), asset.getLastModified());
+
+        if (asset.getGzipContent() != null || asset.getDeflateContent() != null) {
+            res.setHeader("Vary", "Accept-Encoding");
+        }
+
+        if (writeNotModified(rc, asset.getResourcePath(), cache, options)) {
+            return;
+        }
+
+        setHeaders(rc, asset.getResourcePath(), cache, options);
+        res.setHeader("Accept-Ranges", "bytes");
+
+        List<ByteRange> ranges = (rangeRequest) ? getRanges(req, content.length, options) : null;
+        if (ranges != null && ranges.size() == 0) {
+            res.setHeader("Content-Range", "bytes */" + content.length);
+            res.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        if (encoding != null) {
+            res.setHeader("Content-Encoding", encoding);
+        }
+        String contentType = res.getContentType();
+        String boundary = setRangeHeaders(res, ranges, content.length);
+
+        OutputStream os = res.getOutputStream();
+        try {
+            if (ranges == null) {
+                os.write(content);
+            } else if (boundary == null) {
+                ByteRange range = ranges.get(0);
+                os.write(content, (int) range.getStart(), (int) range.getLength());
+            } else {
+                for (ByteRange range : ranges) {
+                    os.write(getPartHeader(boundary, contentType, range, content.length));
+                    os.write(content, (int) range.getStart(), (int) range.getLength());
+                    os.write(CRLF);
+                }
+                os.write(getPartsEnd(boundary));
+            }
+        } catch (Exception e) {
+            logger.error(e.getMessage());
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Transfer count bytes of the file channel, from position, to the OutputStream with FileChannel.transferTo. If
+     * the container OutputStream is a channel, this lets the OS copy the bytes directly (zero-copy), otherwise, the
+     * bytes go through the JDK transfer buffer without any intermediate stream.
+     */
+    static void transferFile(FileChannel fileChannel, long position, long count, OutputStream os) throws IOException {
+        WritableByteChannel target = (os instanceof WritableByteChannel) ? (WritableByteChannel) os : Channels.newChannel(os);
+        long end = position + count;
+        while (position < end) {
+            long transferred = fileChannel.transferTo(position, end - position, target);
+            // transferTo returns 0 when the position is past the end of the file (e.g., file truncated)
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+    }
+
+    static void setContentLength(HttpServletResponse res, long contentLength) {
+        if (contentLength < Integer.MAX_VALUE) {
+            res.setContentLength((int) contentLength);
+        } else {
+            res.setHeader("Content-Length", String.valueOf(contentLength));
         }
     }
     
@@ -76,6 +307,11 @@ public class HttpWriter {
         characterEncoding = (characterEncoding != null) ? characterEncoding : "UTF-8";
         req.setCharacterEncoding(characterEncoding);
 
+        if (writeNotModified(rc, fileName, cache, options)) {
+            contentReader.close();
+            return;
+        }
+
         setHeaders(rc, fileName, cache, options);
 
         // --------- Stream File --------- //
@@ -130,6 +366,113 @@ public class HttpWriter {
         }
     }
 
+    // --------- Conditional Request --------- //
+    /**
+     * If the request validators (If-None-Match, or If-Modified-Since) match the options "etag" and/or "lastModified",
+     * set the headers and the 304 Not Modified status (no body).
+     * 
+     * @return true if the 304 was sent (and the caller must not write the content)
+     */
+    public boolean writeNotModified(RequestContext rc, String fileName, boolean cache, Map options) throws Exception {
+        String etag = MapUtil.getNestedValue(options, "etag");
+        Long lastModified = MapUtil.getNestedValue(options, "lastModified", Long.class);
+
+        if (isNotModified(rc.getReq(), etag, (lastModified != null) ? lastModified : -1)) {
+            setHeaders(rc, fileName, cache, options);
+            rc.getRes().setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param req
+     * @param etag
+     *            the current (quoted) ETag of the resource, or null if none
+     * @param lastModified
+     *            the current last modified time (ms) of the resource, or -1 if unknown
+     * @return true if this GET/HEAD request has validators that match the current etag/lastModified. If-None-Match
+     *         takes precedence over If-Modified-Since.
+     */
+    static public boolean isNotModified(HttpServletRequest req, String etag, long lastModified) {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (etag == null) {
+                return false;
+            }
+            String opaqueEtag = stripWeak(etag);
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                // weak comparison, as per the HTTP spec for If-None-Match
+                if ("*".equals(candidate) || stripWeak(candidate).equals(opaqueEtag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (lastModified >= 0) {
+            long ifModifiedSince;
+            try {
+                ifModifiedSince = req.getDateHeader("If-Modified-Since");
+            } catch (IllegalArgumentException e) {
+                // invalid date, ignore it
+                return false;
+            }
+            // HTTP dates are in seconds
+            if (ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the (quoted) ETag of a file from its length and last modified time
+     */
+    static public String getFileEtag(File file) {
+        return new StringBuilder("\"").append(Long.toHexString(file.length())).append('-')
+                                .append(Long.toHexString(file.lastModified())).append('"').toString();
+    }
+
+    static private String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    // "hash" -> "hash-gzip" (the etag is quoted)
+    static private String getEncodingEtag(String etag, String encoding) {
+        if (etag == null || encoding == null || !etag.endsWith("\"")) {
+            return etag;
+        }
+        return new StringBuilder(etag.substring(0, etag.length() - 1)).append('-').append(encoding).append('"').toString();
+    }
+
+    // return the options with the etag and lastModified, unless they are already set
+    static private Map withValidators(Map options, String etag, long lastModified) {
+        Map newOptions = new HashMap();
+        newOptions.put("etag", etag);
+        newOptions.put("lastModified", lastModified);
+        if (options != null) {
+            newOptions.putAll(options);
+        }
+        return newOptions;
+    }
+    // --------- /Conditional Request --------- //
+
+    /**
+     * Set the content type and cache headers. The options can have:
+     * <ul>
+     * <li>contentType: overrides the content type from the fileName</li>
+     * <li>etag: the (quoted) ETag of the content</li>
+     * <li>lastModified: the last modified time (ms) of the content (Long)</li>
+     * <li>immutable: true if the content url is fingerprinted (cached for a year, no revalidation)</li>
+     * </ul>
+     */
     private void setHeaders(RequestContext rc, String fileName, Boolean cache, Map options) throws Exception {
         HttpServletResponse res = rc.getRes();
 
@@ -137,18 +480,24 @@ public class HttpWriter {
         contentType = (contentType != null) ? contentType : getContentType(fileName);
         res.setContentType(contentType);
 
-        // TODO: needs to support "cache=true"
+        String etag = MapUtil.getNestedValue(options, "etag");
+        Long lastModified = MapUtil.getNestedValue(options, "lastModified", Long.class);
+
+        if (etag != null) {
+            res.setHeader("ETag", etag);
+        }
 
         // --------- Set Cache --------- //
 
-        if (cache) {
-            /*
-             * NOTE: for now we remove this, in the case of a CSS, we do not know the length, since it is a template
-             * contentLength = resourceFile.length();
-             * 
-             * if (contentLength < Integer.MAX_VALUE) { res.setContentLength((int) contentLength); } else {
-             * res.setHeader("content-length", "" + contentLength); }
-             */
+        if (Boolean.TRUE.equals(MapUtil.getNestedValue(options, "immutable", Boolean.class))) {
+            // fingerprinted content (the url changes when the content changes)
+            final int IMMUTABLE_DURATION_IN_SECOND = 60 * 60 * 24 * 365; // 1 year
+            res.setHeader("Cache-Control", "public,max-age=" + IMMUTABLE_DURATION_IN_SECOND + ",immutable");
+            res.setDateHeader("Expires", System.currentTimeMillis() + IMMUTABLE_DURATION_IN_SECOND * 1000L);
+            if (lastModified != null) {
+                res.setDateHeader("Last-Modified", lastModified);
+            }
+        } else if (cache) {
             // This content will expire in 1 hours.
             final int CACHE_DURATION_IN_SECOND = 60 * 60 * 1; // 1 hours
             final long CACHE_DURATION_IN_MS = CACHE_DURATION_IN_SECOND * 1000;
@@ -156,8 +505,15 @@ public class HttpWriter {
 
             res.addHeader("Cache-Control", "max-age=" + CACHE_DURATION_IN_SECOND);
             res.addHeader("Cache-Control", "must-revalidate");// optional
-            res.setDateHeader("Last-Modified", now);
+            res.setDateHeader("Last-Modified", (lastModified != null) ? lastModified : now);
             res.setDateHeader("Expires", now + CACHE_DURATION_IN_MS);
+        } else if (etag != null || lastModified != null) {
+            // not cachable, but can be revalidated (so, no "no-store")
+            res.setHeader("Cache-Control", "no-cache,max-age=0");
+            res.setDateHeader("Expires", 1);
+            if (lastModified != null) {
+                res.setDateHeader("Last-Modified", lastModified);
+            }
         } else {
             res.setHeader("Pragma", "No-cache");
             res.setHeader("Cache-Control", "no-cache,no-store,max-age=0");
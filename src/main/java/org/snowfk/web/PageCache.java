@@ -0,0 +1,318 @@
+package org.snowfk.web;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowfk.util.ContentUtil;
+import org.snowfk.util.LruCache;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Cache of the rendered template pages served to the anonymous (no Auth user) GET requests, so that a hit is served
+ * without running the WebModelHandlers nor Freemarker.<br />
+ * <br />
+ *
+ * A page is cached only if it has a ttl, set by the snow.pageCachePaths property or by the
+ * {@link org.snowfk.web.method.WebModelHandler#pageCacheTtl()} of its WebModelHandlers (the property wins). Pages for
+ * which a WebExceptionHandler handled an exception are not cached.<br />
+ * <br />
+ *
+ * When a page expires, it can still be served for snow.pageCacheStaleTtl seconds while the first request after the
+ * expiration renders the fresh one (stale-while-revalidate), so that an expiration sends only one request to the
+ * WebModelHandlers (and the database).<br />
+ * <br />
+ *
+ * The gzip variant of a page is built (and served to the clients that accept it) only if the ResponseCompressor would
+ * compress the rendered page (snow.gzipResponses, snow.gzipContentTypes and snow.gzipMinSize).<br />
+ * <br />
+ *
+ * Note: The cached pages are served as is, so, the pages cached this way must not set cookies nor depend on the
+ * request beyond their path and the snow.pageCacheParams params.<br />
+ *
+ * Properties:
+ * <ul>
+ * <li>snow.pageCachePaths: comma separated paths with their optional ttl in seconds (e.g.,
+ * "/about:300,/products/*:60,/help"). A path ending with "*" matches all the paths that start with it.</li>
+ * <li>snow.pageCacheTtl: ttl in seconds of the snow.pageCachePaths without ttl (default 60)</li>
+ * <li>snow.pageCacheStaleTtl: seconds an expired page can be served while it is re-rendered (default 30)</li>
+ * <li>snow.pageCacheParams: comma separated request params the pages vary by (the other params are ignored)</li>
+ * <li>snow.pageCacheSize: max number of cached pages (default 1000, 0 to disable)</li>
+ * </ul>
+ */
+@Singleton
+public class PageCache {
+    static private Logger            logger      = LoggerFactory.getLogger(PageCache.class);
+
+    static private final String      CHAR_ENCODING = "UTF-8";
+    static private final String      CONTENT_TYPE  = "text/html;charset=" + CHAR_ENCODING;
+
+    @Inject
+    private Application              application;
+
+    @Inject
+    private ResponseCompressor       responseCompressor;
+
+    // will be injected from .properties file
+    private int                      defaultTtl  = 60;
+    private int                      staleTtl    = 30;
+    private int                      maxSize     = 1000;
+    private String[]                 paramNames  = new String[0];
+    private List<PathTtl>            pathTtls    = new ArrayList<PathTtl>();
+
+    private LruCache<String, CachedPage> cache;
+
+    // resourcePath -> generation, incremented by invalidate(resourcePath) (the pages of an older generation are misses)
+    private ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<String, AtomicLong>();
+
+    // keys of the expired pages being re-rendered by the request elected by get(rc), until its put or release
+    private ConcurrentMap<String, Boolean>    refreshingKeys = new ConcurrentHashMap<String, Boolean>();
+
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectPageCachePaths(@Named("snow.pageCachePaths") String paths) {
+        for (String path : paths.split(",")) {
+            path = path.trim();
+            if (path.length() == 0) {
+                continue;
+            }
+            int ttl = -1;
+            int idx = path.lastIndexOf(':');
+            if (idx != -1) {
+                try {
+                    ttl = Integer.parseInt(path.substring(idx + 1).trim());
+                } catch (NumberFormatException e) {
+                    logger.warn("invalid snow.pageCachePaths ttl for : " + path + ".  Will default to snow.pageCacheTtl");
+                }
+                path = path.substring(0, idx).trim();
+            }
+            pathTtls.add(new PathTtl(path, ttl));
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectPageCacheTtl(@Named("snow.pageCacheTtl") String ttl) {
+        try {
+            defaultTtl = Integer.parseInt(ttl.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.pageCacheTtl property : " + ttl + ".  Will default to " + defaultTtl);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectPageCacheStaleTtl(@Named("snow.pageCacheStaleTtl") String ttl) {
+        try {
+            staleTtl = Integer.parseInt(ttl.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.pageCacheStaleTtl property : " + ttl + ".  Will default to " + staleTtl);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectPageCacheParams(@Named("snow.pageCacheParams") String params) {
+        List<String> names = new ArrayList<String>();
+        for (String name : params.split(",")) {
+            if (name.trim().length() > 0) {
+                names.add(name.trim());
+            }
+        }
+        paramNames = names.toArray(new String[names.size()]);
+    }
+
+    @Inject(optional = true)
+    public void injectPageCacheSize(@Named("snow.pageCacheSize") String size) {
+        try {
+            maxSize = Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.pageCacheSize property : " + size + ".  Will default to " + maxSize);
+        }
+    }
+    // --------- /Injects --------- //
+
+    public void init() {
+        if (maxSize > 0) {
+            cache = new LruCache<String, CachedPage>(maxSize);
+        }
+    }
+
+    /**
+     * @return the ttl (in seconds) of the page of this request, or 0 if the page must not be served from (or put in)
+     *         the cache (disabled, not a GET, authenticated user, or no ttl for this page)
+     */
+    public int getTtl(RequestContext rc) {
+        if (cache == null || !"GET".equals(rc.getReq().getMethod())) {
+            return 0;
+        }
+        if (rc.getAuth() != null && rc.getAuth().getUser() != null) {
+            return 0;
+        }
+
+        String resourcePath = rc.getResourcePath();
+        for (PathTtl pathTtl : pathTtls) {
+            if (pathTtl.matches(resourcePath)) {
+                return (pathTtl.ttl >= 0) ? pathTtl.ttl : defaultTtl;
+            }
+        }
+        return Math.max(0, application.getPageCacheTtl(rc));
+    }
+
+    /**
+     * @return the cached page, or null if the page has to be rendered, and then
+     *         {@link #put(RequestContext, String, int, long)}, or {@link #release(RequestContext)} if not cached. An
+     *         expired page is still returned during its stale period, except to the first request after its
+     *         expiration, which gets null to render the fresh page.
+     */
+    public StaticAsset get(RequestContext rc) {
+        String key = getKey(rc);
+        CachedPage cachedPage = cache.get(key);
+        if (cachedPage == null || cachedPage.generation != getGeneration(rc.getResourcePath())) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now < cachedPage.expiresAt) {
+            return cachedPage.page;
+        } else if (now < cachedPage.staleUntil && refreshingKeys.putIfAbsent(key, Boolean.TRUE) != null) {
+            // another request is already rendering the fresh page
+            return cachedPage.page;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return the generation of the page of this request, to be read before rendering it and given to
+     *         {@link #put(RequestContext, String, int, long)}, so that an invalidate during the rendering is not lost
+     */
+    public long getGeneration(RequestContext rc) {
+        return getGeneration(rc.getResourcePath());
+    }
+
+    /**
+     * Cache the rendered page of this request.
+     *
+     * @param generation
+     *            the generation of the page before it was rendered (see {@link #getGeneration(RequestContext)})
+     * @return the page to be written
+     */
+    public StaticAsset put(RequestContext rc, String body, int ttl, long generation) {
+        String resourcePath = rc.getResourcePath();
+        long now = System.currentTimeMillis();
+
+        byte[] content;
+        try {
+            content = body.getBytes(CHAR_ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] gzipContent = null;
+        if (responseCompressor.isCompressible(CONTENT_TYPE, content.length)) {
+            gzipContent = ContentUtil.gzip(content);
+            if (gzipContent.length >= content.length) {
+                gzipContent = null;
+            }
+        }
+        String etag = new StringBuilder("\"").append(ContentUtil.md5Hex(content)).append('"').toString();
+        StaticAsset page = new StaticAsset(resourcePath, null, content, gzipContent, null, etag, now);
+
+        long expiresAt = now + ttl * 1000L;
+        String key = getKey(rc);
+        cache.put(key, new CachedPage(page, generation, expiresAt, expiresAt + staleTtl * 1000L));
+        refreshingKeys.remove(key);
+        return page;
+    }
+
+    /**
+     * Release the page of this request when it was rendered but not put in the cache (e.g., failed or handled
+     * exception), so that the next request renders it again rather than the stale page being served until its end.
+     */
+    public void release(RequestContext rc) {
+        refreshingKeys.remove(getKey(rc));
+    }
+
+    // --------- Invalidation --------- //
+    /**
+     * Invalidate all the cached pages (all the params variations) of this resource path (e.g., "/contact").
+     */
+    public void invalidate(String resourcePath) {
+        AtomicLong generation = generations.get(resourcePath);
+        if (generation == null) {
+            AtomicLong newGeneration = new AtomicLong();
+            generation = generations.putIfAbsent(resourcePath, newGeneration);
+            if (generation == null) {
+                generation = newGeneration;
+            }
+        }
+        generation.incrementAndGet();
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+    // --------- /Invalidation --------- //
+
+    public long getHitCount() {
+        return (cache != null) ? cache.getHitCount() : 0;
+    }
+
+    public long getMissCount() {
+        return (cache != null) ? cache.getMissCount() : 0;
+    }
+
+    private String getKey(RequestContext rc) {
+        StringBuilder sb = new StringBuilder(rc.getResourcePath());
+        for (String paramName : paramNames) {
+            String value = rc.getParam(paramName);
+            if (value != null) {
+                sb.append('|').append(paramName).append('=').append(value);
+            }
+        }
+        return sb.toString();
+    }
+
+    // 0 until the resource path is invalidated
+    private long getGeneration(String resourcePath) {
+        AtomicLong generation = generations.get(resourcePath);
+        return (generation != null) ? generation.get() : 0;
+    }
+
+    static private class CachedPage {
+        final StaticAsset   page;
+        final long          generation;
+        final long          expiresAt;
+        final long          staleUntil;
+
+        CachedPage(StaticAsset page, long generation, long expiresAt, long staleUntil) {
+            this.page = page;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+    }
+
+    static private class PathTtl {
+        final String  path;
+        final boolean prefix;
+        final int     ttl;
+
+        PathTtl(String path, int ttl) {
+            this.prefix = path.endsWith("*");
+            this.path = (prefix) ? path.substring(0, path.length() - 1) : path;
+            this.ttl = ttl;
+        }
+
+        boolean matches(String resourcePath) {
+            return (prefix) ? resourcePath.startsWith(path) : resourcePath.equals(path);
+        }
+    }
+}
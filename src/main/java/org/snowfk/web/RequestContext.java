@@ -67,6 +67,13 @@ public class RequestContext {
     //set by AuthService.authRequest
     private Auth<?>             auth;
 
+    //set by the Application when a WebExceptionHandler handled an exception for this request
+    private Throwable           handledException;
+
+    //set by the Application when the web models are deferred to the [@includeFrameContent /] (snow.earlyFlush)
+    private boolean             webModelsPending;
+    private Throwable           webModelsError;
+
 
     public RequestContext(HttpServletRequest req, HttpServletResponse res, ServletContext servletContext,
                           ServletFileUpload fileUploader) {
@@ -241,54 +248,96 @@ public class RequestContext {
      *            Default value in case of an error or null/empty value
      * @return
      */
-    @SuppressWarnings("unchecked")
     public <T> T getParam(String name, Class<T> cls, T defaultValue) {
-        Map<String, Object> paramMap = getParamMap();
-        if (paramMap == null) {
-            return defaultValue;
-        }
         //if we have a primitive type or array, then, just get the single value and convert it to the appropriate type
-        if (ObjectUtil.isPrimitive(cls) || cls.isArray() || cls == FileItem.class || cls.isEnum()) {
-            // first, try to get it from the paramMap
-            Object valueObject = paramMap.get(name);
+        if (isSingleValueParamClass(cls)) {
+            return getSingleValueParam(name, cls, defaultValue);
+        }
+        //otherwise, if it is not a primitive type, attempt to create the targeted object with the corresponding paramMap
+        else {
+            return getBeanParam(name, cls, defaultValue);
+        }
+    }
 
-            if (isMultipart) {
-                // HACK
-                // if not found, try to get it from the regular HttpServletRequest
-                // (in the case of a multiPart post,
-                // HttpServletRequest.getParameter still have the URL params)
-                if (valueObject == null) {
-                    valueObject = getReq().getParameter(name);
-                }
-            }
+    /**
+     * @param cls
+     * @return true if the param of this class is a single value (primitive type, array, enum, or FileItem) to be
+     *         converted, false if it is a bean to be populated from the "name." params.
+     */
+    static public boolean isSingleValueParamClass(Class cls) {
+        return ObjectUtil.isPrimitive(cls) || cls.isArray() || cls == FileItem.class || cls.isEnum();
+    }
 
+    /**
+     * Get a single value param (see {@link #isSingleValueParamClass(Class)}) and convert it to the cls type. <br />
+     * Usually, {@link #getParam(String, Class, Object)} should be used. This is for callers that already know the
+     * param class kind.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getSingleValueParam(String name, Class<T> cls, T defaultValue) {
+        Object valueObject = getRawParam(name);
+
+        if (valueObject == null) {
+            return defaultValue;
+        } else if (valueObject instanceof String) {
+            return (T) ObjectUtil.getValue((String) valueObject, cls, defaultValue);
+        } else if (valueObject instanceof String[]) {
+            return (T) ObjectUtil.getValue((String[]) valueObject, cls, defaultValue);
+        } else {
+            //hope for the best (should be a fileItem)
+            return (T) valueObject;
+        }
+    }
+
+    /**
+     * Get the param value as is, without conversion (String, String[], or FileItem for a multipart post). <br />
+     * Usually, {@link #getParam(String, Class, Object)} should be used. This is for callers that convert the value
+     * themselves (e.g., WebArgRef resolvers).
+     * 
+     * @return the param value or null if not found
+     */
+    public Object getRawParam(String name) {
+        Map<String, Object> paramMap = getParamMap();
+        if (paramMap == null) {
+            return null;
+        }
+        // first, try to get it from the paramMap
+        Object valueObject = paramMap.get(name);
+
+        if (isMultipart) {
+            // HACK
+            // if not found, try to get it from the regular HttpServletRequest
+            // (in the case of a multiPart post,
+            // HttpServletRequest.getParameter still have the URL params)
             if (valueObject == null) {
-                return defaultValue;
-            } else if (valueObject instanceof String) {
-                return (T) ObjectUtil.getValue((String) valueObject, cls, defaultValue);
-            } else if (valueObject instanceof String[]) {
-                return (T) ObjectUtil.getValue((String[]) valueObject, cls, defaultValue);
-            } else {
-                //hope for the best (should be a fileItem)
-                return (T) valueObject;
+                valueObject = getReq().getParameter(name);
             }
         }
-        //otherwise, if it is not a primitive type, attempt to create the targeted object with the corresponding paramMap
-        else {
-            Map subParamMap = getParamMap(name + "."); // i.e., "product."
-            if (subParamMap != null) {
-                try {
-                    T value = cls.newInstance();
-                    ObjectUtil.populate(value, subParamMap);
-                    return value;
-                } catch (Exception e) {
-                    logger.warn(e.getMessage());
-                    return defaultValue;
-                }
-            } else {
+        return valueObject;
+    }
+
+    /**
+     * Create the cls object and populate it with the "name." params (i.e., "product.name"). <br />
+     * Usually, {@link #getParam(String, Class, Object)} should be used. This is for callers that already know the
+     * param class kind (e.g., WebArgRef resolvers).
+     */
+    public <T> T getBeanParam(String name, Class<T> cls, T defaultValue) {
+        Map<String, Object> paramMap = getParamMap();
+        if (paramMap == null) {
+            return defaultValue;
+        }
+        Map subParamMap = getParamMap(name + "."); // i.e., "product."
+        if (subParamMap != null) {
+            try {
+                T value = cls.newInstance();
+                ObjectUtil.populate(value, subParamMap);
+                return value;
+            } catch (Exception e) {
+                logger.warn(e.getMessage());
                 return defaultValue;
             }
-
+        } else {
+            return defaultValue;
         }
     }
 
@@ -404,6 +453,15 @@ public class RequestContext {
         }
     }
 
+    /**
+     * Initialize the lazily built request state (params and cookies) on the calling thread, so that the threads
+     * sharing this RequestContext (e.g., the parallel WebModelHandlers) only read it.
+     */
+    void initLazyState() {
+        initParamsIfNeeded();
+        getCookieMap();
+    }
+
     /*--------- /Param Methods ---------*/
 
     /*--------- Cookie Methods ---------*/
@@ -612,6 +670,40 @@ public class RequestContext {
         this.webActionResponse = webActionResponse;
     }
 
+    /**
+     * @return the last exception handled by a WebExceptionHandler during this request (null if none)
+     */
+    public Throwable getHandledException() {
+        return handledException;
+    }
+
+    public void setHandledException(Throwable handledException) {
+        this.handledException = handledException;
+    }
+
+    /**
+     * @return true if the web models of this request have not been processed yet, because they are deferred until the
+     *         frame head is flushed (see snow.earlyFlush)
+     */
+    public boolean isWebModelsPending() {
+        return webModelsPending;
+    }
+
+    public void setWebModelsPending(boolean webModelsPending) {
+        this.webModelsPending = webModelsPending;
+    }
+
+    /**
+     * @return the exception thrown by the deferred web models (null if none)
+     */
+    public Throwable getWebModelsError() {
+        return webModelsError;
+    }
+
+    public void setWebModelsError(Throwable webModelsError) {
+        this.webModelsError = webModelsError;
+    }
+
     /*--------- HttpServlet ---------*/
     public HttpServletRequest getReq() {
         return req;
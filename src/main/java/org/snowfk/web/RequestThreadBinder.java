@@ -0,0 +1,123 @@
+package org.snowfk.web;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowfk.web.db.hibernate.HibernateSessionInViewHandler;
+import org.snowfk.web.db.hibernate.SessionHolder;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Bind the request state to the threads processing a request: the current RequestContext (see
+ * CurrentRequestContextHolder) and, if the application uses one, a Hibernate session in view (see SessionHolder).<br />
+ * <br />
+ *
+ * The WebController binds the RequestContext on the request thread, and the Application wraps the tasks it runs on
+ * its web model executor (parallel WebModelHandlers, with their WebHandlerInterceptor before/after) with
+ * {@link #wrap(RequestContext, Callable)}, so that they see the same RequestContext.<br />
+ * <br />
+ *
+ * Note: A Hibernate Session is not thread safe, so, a wrapped task gets its own session in view rather than the one of
+ * the request thread. This session is detached from the task thread when the task ends, but stays open until the end
+ * of the request ({@link #closeTaskSessions(RequestContext)}), so that the lazy associations of the entities the task
+ * put in the model can still be loaded when the template is rendered (on the request thread, once the task is done).
+ */
+@Singleton
+public class RequestThreadBinder {
+    static private Logger                                  logger                        = LoggerFactory.getLogger(RequestThreadBinder.class);
+
+    @Inject(optional = true)
+    private HibernateSessionInViewHandler                  hibernateSessionInViewHandler = null;
+
+    private ThreadLocal<RequestContext>                    requestContextTl              = new ThreadLocal<RequestContext>();
+
+    // the detached sessions in view of the wrapped tasks, by request (closed by closeTaskSessions)
+    private ConcurrentMap<RequestContext, List<SessionHolder>> taskSessions              = new ConcurrentHashMap<RequestContext, List<SessionHolder>>();
+
+    public RequestContext getCurrentRequestContext() {
+        return requestContextTl.get();
+    }
+
+    public void bind(RequestContext rc) {
+        requestContextTl.set(rc);
+    }
+
+    public void unbind() {
+        requestContextTl.remove();
+    }
+
+    /**
+     * @return the task that runs with this RequestContext (and its own Hibernate session in view) bound to its thread,
+     *         and unbinds them when done. If the task runs on the thread already bound to this RequestContext (e.g.,
+     *         the request thread), it is run as is.
+     */
+    public <T> Callable<T> wrap(final RequestContext rc, final Callable<T> task) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (requestContextTl.get() == rc) {
+                    return task.call();
+                }
+
+                requestContextTl.set(rc);
+                try {
+                    if (hibernateSessionInViewHandler != null) {
+                        hibernateSessionInViewHandler.openSessionInView();
+                    }
+                    return task.call();
+                } finally {
+                    try {
+                        if (hibernateSessionInViewHandler != null) {
+                            addTaskSession(rc, hibernateSessionInViewHandler.detachSessionInView());
+                        }
+                    } finally {
+                        requestContextTl.remove();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Close the sessions in view of the tasks wrapped for this request. Called by the WebController at the end of the
+     * request, once the template has been rendered.
+     */
+    public void closeTaskSessions(RequestContext rc) {
+        List<SessionHolder> sessionHolders = taskSessions.remove(rc);
+        if (sessionHolders != null) {
+            synchronized (sessionHolders) {
+                for (SessionHolder sessionHolder : sessionHolders) {
+                    try {
+                        sessionHolder.close();
+                    } catch (Exception e) {
+                        logger.error("Cannot close the session in view of a parallel task: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private void addTaskSession(RequestContext rc, SessionHolder sessionHolder) {
+        if (sessionHolder == null) {
+            return;
+        }
+        List<SessionHolder> sessionHolders = taskSessions.get(rc);
+        if (sessionHolders == null) {
+            List<SessionHolder> newSessionHolders = new ArrayList<SessionHolder>();
+            sessionHolders = taskSessions.putIfAbsent(rc, newSessionHolders);
+            if (sessionHolders == null) {
+                sessionHolders = newSessionHolders;
+            }
+        }
+        synchronized (sessionHolders) {
+            sessionHolders.add(sessionHolder);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.snowfk.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Constructor;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowfk.util.HttpRequestUtil;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Negotiated gzip compression of the rendered (template and json) responses.<br />
+ * 
+ * The response is compressed only if the client accepts gzip, the content type is one of snow.gzipContentTypes, and
+ * the body is at least snow.gzipMinSize bytes. Only the first snow.gzipMinSize bytes are buffered (to decide), then
+ * the body is compressed as it is written.<br />
+ * 
+ * Properties:
+ * <ul>
+ * <li>snow.gzipResponses: true to enable (default false, e.g., when a fronting proxy compresses)</li>
+ * <li>snow.gzipMinSize: min body size in bytes (default 1024)</li>
+ * <li>snow.gzipContentTypes: comma separated content types (default "text/html,application/json")</li>
+ * </ul>
+ */
+@Singleton
+public class ResponseCompressor {
+    static private Logger                               logger       = LoggerFactory.getLogger(ResponseCompressor.class);
+
+    // GZIPOutputStream(OutputStream, int, boolean syncFlush) (Java 7+), so that a flush sends the compressed bytes
+    static private final Constructor<GZIPOutputStream> syncFlushGzipConstructor;
+
+    static {
+        Constructor<GZIPOutputStream> constructor = null;
+        try {
+            constructor = GZIPOutputStream.class.getConstructor(OutputStream.class, int.class, boolean.class);
+        } catch (NoSuchMethodException e) {
+            // Java 6, flush will not force the compressed bytes out
+        }
+        syncFlushGzipConstructor = constructor;
+    }
+
+    // will be injected from .properties file
+    private boolean     enabled      = false;
+    private int         minSize      = 1024;
+    private Set<String> contentTypes = new HashSet<String>();
+    {
+        contentTypes.add("text/html");
+        contentTypes.add("application/json");
+    }
+
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectGzipResponses(@Named("snow.gzipResponses") String gzip) {
+        enabled = "true".equalsIgnoreCase(gzip);
+    }
+
+    @Inject(optional = true)
+    public void injectGzipMinSize(@Named("snow.gzipMinSize") String size) {
+        try {
+            minSize = Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.gzipMinSize property : " + size + ".  Will default to " + minSize);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectGzipContentTypes(@Named("snow.gzipContentTypes") String types) {
+        contentTypes = new HashSet<String>();
+        for (String type : types.split(",")) {
+            type = type.trim().toLowerCase();
+            if (type.length() > 0) {
+                contentTypes.add(type);
+            }
+        }
+    }
+    // --------- /Injects --------- //
+
+    /**
+     * @return true if the responses of this content type can be compressed (i.e., vary on Accept-Encoding)
+     */
+    public boolean isCompressible(String contentType) {
+        if (!enabled || contentType == null) {
+            return false;
+        }
+        int semicolonIdx = contentType.indexOf(';');
+        String mimeType = (semicolonIdx != -1) ? contentType.substring(0, semicolonIdx) : contentType;
+        return contentTypes.contains(mimeType.trim().toLowerCase());
+    }
+
+    /**
+     * @return true if a body of this content type and length should be sent compressed to the clients that accept gzip
+     */
+    public boolean isCompressible(String contentType, int length) {
+        return length >= minSize && isCompressible(contentType);
+    }
+
+    /**
+     * @return true if a body of this content type and length should be sent compressed for this request (for the
+     *         buffered responses)
+     */
+    public boolean shouldCompress(RequestContext rc, String contentType, int length) {
+        return isCompressible(contentType, length) && HttpRequestUtil.acceptsEncoding(rc.getReq(), "gzip");
+    }
+
+    /**
+     * If the content type is compressible, set the Vary header, and if the client accepts gzip, set the
+     * RequestContext writer to a compressing writer (which must be closed to complete the response).
+     */
+    public void wrapResponse(RequestContext rc, String contentType, String characterEncoding)
+                            throws UnsupportedEncodingException {
+        wrapResponse(rc, contentType, characterEncoding, false);
+    }
+
+    /**
+     * Same as {@link #wrapResponse(RequestContext, String, String)}, but when streaming (e.g., early flush), the gzip
+     * starts with the first byte (rather than after snow.gzipMinSize bytes), so that the flushes reach the client.
+     */
+    public void wrapResponse(RequestContext rc, String contentType, String characterEncoding, boolean streaming)
+                            throws UnsupportedEncodingException {
+        if (isCompressible(contentType)) {
+            rc.getRes().setHeader("Vary", "Accept-Encoding");
+            if (HttpRequestUtil.acceptsEncoding(rc.getReq(), "gzip")) {
+                OutputStream os = new ThresholdGzipOutputStream(rc.getRes(), (streaming) ? 0 : minSize);
+                rc.setWriter(new OutputStreamWriter(os, characterEncoding));
+            }
+        }
+    }
+
+    static private GZIPOutputStream newGzipOutputStream(OutputStream os) throws IOException {
+        if (syncFlushGzipConstructor != null) {
+            try {
+                return syncFlushGzipConstructor.newInstance(os, 512, true);
+            } catch (Exception e) {
+                // fall back to the default GZIPOutputStream
+            }
+        }
+        return new GZIPOutputStream(os);
+    }
+
+    /**
+     * Buffer the first minSize bytes. If the body ends (close) before, it is sent uncompressed with its Content-Length,
+     * otherwise the gzip encoding is started and the rest of the body is compressed as it is written (and flushed with
+     * a sync flush on Java 7+).
+     */
+    static class ThresholdGzipOutputStream extends OutputStream {
+        private final HttpServletResponse res;
+        private final int                 minSize;
+        private ByteArrayOutputStream     buffer;
+        private OutputStream              out;
+        private boolean                   closed = false;
+
+        ThresholdGzipOutputStream(HttpServletResponse res, int minSize) {
+            this.res = res;
+            this.minSize = minSize;
+            this.buffer = new ByteArrayOutputStream(Math.min(Math.max(minSize, 32), 8192));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null) {
+                if (buffer.size() + len < minSize) {
+                    buffer.write(b, off, len);
+                    return;
+                }
+                startGzip();
+            }
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // while buffering (less than minSize bytes), a flush is a no-op (freemarker flushes at the end of each
+            // template)
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (out == null) {
+                // small body, sent as is
+                res.setContentLength(buffer.size());
+                OutputStream os = res.getOutputStream();
+                buffer.writeTo(os);
+                os.close();
+            } else {
+                out.close();
+            }
+        }
+
+        private void startGzip() throws IOException {
+            res.setHeader("Content-Encoding", "gzip");
+            out = newGzipOutputStream(res.getOutputStream());
+            buffer.writeTo(out);
+            buffer = null;
+        }
+    }
+}
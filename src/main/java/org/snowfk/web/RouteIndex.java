@@ -0,0 +1,162 @@
+package org.snowfk.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index of regex routes keyed by the literal prefix of their pattern.<br />
+ * 
+ * At match time, the path is walked once through a character trie, and only the routes whose literal prefix is a
+ * prefix of the path are tested with their (precompiled) regex. Routes without a usable literal prefix (e.g.,
+ * ".*foo" or alternations) are always candidates.<br />
+ * 
+ * Note: Populated at Application.init time only, and read-only afterward (not thread safe for writes).
+ * 
+ * @param <T>
+ *            the route target (e.g., WebModelHandlerRef)
+ */
+public class RouteIndex<T> {
+
+    // regex chars that end the literal prefix
+    static private final String META_CHARS = "\\[](){}.*+?^$|";
+
+    private Node<T>             root       = new Node<T>();
+    private int                 routeCount = 0;
+
+    public void add(Pattern pattern, T target) {
+        String prefix = getLiteralPrefix(pattern.pattern());
+        Node<T> node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.getChild(prefix.charAt(i), true);
+        }
+        node.addRoute(new Route<T>(pattern, target, routeCount++));
+    }
+
+    /**
+     * Return the targets matching this path, in the order they were added. A target is returned only once even if
+     * more than one of its patterns match.
+     * 
+     * @param path
+     * @return the matching targets (never null)
+     */
+    public List<T> match(String path) {
+        List<Route<T>> candidates = null;
+        boolean needsSort = false;
+
+        Node<T> node = root;
+        int i = 0;
+        while (node != null) {
+            if (node.routes != null) {
+                if (candidates == null) {
+                    candidates = new ArrayList<Route<T>>(node.routes);
+                } else {
+                    candidates.addAll(node.routes);
+                    needsSort = true;
+                }
+            }
+            if (i >= path.length()) {
+                break;
+            }
+            node = node.getChild(path.charAt(i++), false);
+        }
+
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+
+        if (needsSort) {
+            Collections.sort(candidates, routeOrderComparator);
+        }
+
+        List<T> targets = new ArrayList<T>(candidates.size());
+        for (Route<T> route : candidates) {
+            if (!targets.contains(route.target) && route.pattern.matcher(path).matches()) {
+                targets.add(route.target);
+            }
+        }
+        return targets;
+    }
+
+    public int size() {
+        return routeCount;
+    }
+
+    /**
+     * Return the literal (non regex) start of the regex. Return an empty string if the regex does not have a safe
+     * literal prefix.
+     * 
+     * @param regex
+     * @return
+     */
+    static String getLiteralPrefix(String regex) {
+        // alternations might apply to the prefix, so, no prefix for them
+        if (regex.indexOf('|') != -1) {
+            return "";
+        }
+
+        int start = (regex.startsWith("^")) ? 1 : 0;
+        StringBuilder sb = new StringBuilder();
+        for (int i = start; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (META_CHARS.indexOf(c) != -1) {
+                // if a quantifier makes the previous char optional, then, it cannot be part of the prefix
+                if ((c == '?' || c == '*' || c == '{') && sb.length() > 0) {
+                    sb.setLength(sb.length() - 1);
+                }
+                break;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // --------- Trie Structure --------- //
+    static private class Node<T> {
+        Map<Character, Node<T>> children;
+        List<Route<T>>          routes;
+
+        Node<T> getChild(char c, boolean create) {
+            Node<T> child = (children != null) ? children.get(c) : null;
+            if (child == null && create) {
+                if (children == null) {
+                    children = new HashMap<Character, Node<T>>();
+                }
+                child = new Node<T>();
+                children.put(c, child);
+            }
+            return child;
+        }
+
+        void addRoute(Route<T> route) {
+            if (routes == null) {
+                routes = new ArrayList<Route<T>>(1);
+            }
+            routes.add(route);
+        }
+    }
+
+    static private class Route<T> {
+        final Pattern pattern;
+        final T       target;
+        final int     order;
+
+        Route(Pattern pattern, T target, int order) {
+            this.pattern = pattern;
+            this.target = target;
+            this.order = order;
+        }
+    }
+
+    static private final Comparator<Route<?>> routeOrderComparator = new Comparator<Route<?>>() {
+        @Override
+        public int compare(Route<?> r1, Route<?> r2) {
+            return (r1.order < r2.order) ? -1 : ((r1.order == r2.order) ? 0 : 1);
+        }
+    };
+    // --------- /Trie Structure --------- //
+}
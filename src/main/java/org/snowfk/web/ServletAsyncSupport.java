@@ -0,0 +1,102 @@
+package org.snowfk.web;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Singleton;
+
+/**
+ * Access to the Servlet 3 async API (request.startAsync, AsyncContext.complete) while still compiling and running
+ * against older servlet APIs.<br />
+ * 
+ * The Servlet 3 methods are looked up once. If the container does not provide them, isAsyncSupported always returns
+ * false, and the requests are processed synchronously.<br />
+ * 
+ * Note: The SnowServlet must be declared with &lt;async-supported&gt;true&lt;/async-supported&gt; in the web.xml.
+ */
+@Singleton
+public class ServletAsyncSupport {
+    static private Logger       logger = LoggerFactory.getLogger(ServletAsyncSupport.class);
+
+    static private final Method isAsyncSupportedMethod;
+    static private final Method startAsyncMethod;
+    static private final Method setTimeoutMethod;
+    static private final Method completeMethod;
+
+    static {
+        Method isAsyncSupported = null;
+        Method startAsync = null;
+        Method setTimeout = null;
+        Method complete = null;
+        try {
+            Class servletRequestClass = Class.forName("javax.servlet.ServletRequest");
+            Class asyncContextClass = Class.forName("javax.servlet.AsyncContext");
+            isAsyncSupported = servletRequestClass.getMethod("isAsyncSupported");
+            startAsync = servletRequestClass.getMethod("startAsync");
+            setTimeout = asyncContextClass.getMethod("setTimeout", long.class);
+            complete = asyncContextClass.getMethod("complete");
+        } catch (Throwable t) {
+            // not a Servlet 3 container
+            isAsyncSupported = null;
+        }
+        isAsyncSupportedMethod = isAsyncSupported;
+        startAsyncMethod = startAsync;
+        setTimeoutMethod = setTimeout;
+        completeMethod = complete;
+    }
+
+    /**
+     * @return true if the container supports the Servlet 3 async API and this request can be put in async mode.
+     */
+    public boolean isAsyncSupported(HttpServletRequest request) {
+        if (isAsyncSupportedMethod == null) {
+            return false;
+        }
+        try {
+            return (Boolean) isAsyncSupportedMethod.invoke(request);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Put the request in async mode.
+     * 
+     * @param request
+     * @param timeout
+     *            in milliseconds. If &lt;= 0, no timeout (0), so that the container never completes the request while
+     *            its task might still be writing the response (the task always completes it). A positive timeout
+     *            must be longer than the slowest request, as the task is not stopped when the container times out.
+     * @return the AsyncContext (as Object, to be passed to {@link #complete(Object)})
+     */
+    public Object startAsync(HttpServletRequest request, long timeout) throws Exception {
+        Object asyncContext = invoke(startAsyncMethod, request);
+        invoke(setTimeoutMethod, asyncContext, Math.max(0, timeout));
+        return asyncContext;
+    }
+
+    /**
+     * Complete the async request. Errors (e.g., the container already completed it after a timeout) are logged only.
+     */
+    public void complete(Object asyncContext) {
+        try {
+            invoke(completeMethod, asyncContext);
+        } catch (Exception e) {
+            logger.warn("Cannot complete async request because " + e.getMessage());
+        }
+    }
+
+    static private Object invoke(Method method, Object target, Object... args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.snowfk.web;
+
+import java.io.File;
+
+/**
+ * In memory copy of a static file (see {@link StaticAssetCache}) with its validators (strong ETag, last modified) and
+ * its precompressed variants.
+ */
+public class StaticAsset {
+
+    private final String resourcePath;
+    private final File   file;
+    private final byte[] content;
+    private final byte[] gzipContent;
+    private final byte[] deflateContent;
+    private final String etag;
+    private final long   lastModified;
+
+    // last time (ms) the file was checked for modification (by the StaticAssetCache)
+    private volatile long checkedAt;
+
+    public StaticAsset(String resourcePath, File file, byte[] content, byte[] gzipContent, byte[] deflateContent,
+                       String etag, long lastModified) {
+        this.resourcePath = resourcePath;
+        this.file = file;
+        this.content = content;
+        this.gzipContent = gzipContent;
+        this.deflateContent = deflateContent;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.checkedAt = System.currentTimeMillis();
+    }
+
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * @return the gzip variant, or null if the content is not compressible (or does not get smaller)
+     */
+    public byte[] getGzipContent() {
+        return gzipContent;
+    }
+
+    /**
+     * @return the deflate variant, or null if not built (see snow.staticAssetCacheDeflate)
+     */
+    public byte[] getDeflateContent() {
+        return deflateContent;
+    }
+
+    /**
+     * @return the quoted strong ETag (from the content digest)
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the total number of bytes held by this asset (content and variants)
+     */
+    public long getByteSize() {
+        long size = content.length;
+        size += (gzipContent != null) ? gzipContent.length : 0;
+        size += (deflateContent != null) ? deflateContent.length : 0;
+        return size;
+    }
+
+    long getCheckedAt() {
+        return checkedAt;
+    }
+
+    void setCheckedAt(long checkedAt) {
+        this.checkedAt = checkedAt;
+    }
+}
@@ -0,0 +1,221 @@
+package org.snowfk.web;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowfk.util.ContentUtil;
+import org.snowfk.util.FileUtil;
+import org.snowfk.util.LruCache;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Bounded (in bytes) in memory cache of the static files served by the WebController, keyed by resource path.<br />
+ * 
+ * Each entry holds the file bytes, a strong ETag, the last modified time, and the gzip (and optionally deflate)
+ * variants, built once when the file is loaded. An entry is validated against the file last modified time and length
+ * at most once every snow.staticAssetCacheCheckInterval ms.<br />
+ * 
+ * Properties:
+ * <ul>
+ * <li>snow.staticAssetCacheSize: max number of bytes held by the cache (default 16MB, 0 to disable)</li>
+ * <li>snow.staticAssetCacheMaxFileSize: files bigger than this are not cached (default 1MB)</li>
+ * <li>snow.staticAssetCacheCheckInterval: ms between two modification checks of a file (default 1000, 0 for
+ * every request)</li>
+ * <li>snow.staticAssetCacheDeflate: true to also build the deflate variants (default false)</li>
+ * </ul>
+ */
+@Singleton
+public class StaticAssetCache {
+    static private Logger             logger          = LoggerFactory.getLogger(StaticAssetCache.class);
+
+    // will be injected from .properties file
+    private long                      maxSize         = 16 * 1024 * 1024;
+    private long                      maxFileSize     = 1024 * 1024;
+    private long                      checkInterval   = 1000;
+    private boolean                   deflate         = false;
+
+    private LruCache<String, StaticAsset> cache;
+
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectStaticAssetCacheSize(@Named("snow.staticAssetCacheSize") String size) {
+        try {
+            maxSize = Long.parseLong(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.staticAssetCacheSize property : " + size + ".  Will default to " + maxSize);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectStaticAssetCacheMaxFileSize(@Named("snow.staticAssetCacheMaxFileSize") String size) {
+        try {
+            maxFileSize = Long.parseLong(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.staticAssetCacheMaxFileSize property : " + size + ".  Will default to " + maxFileSize);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectStaticAssetCacheCheckInterval(@Named("snow.staticAssetCacheCheckInterval") String interval) {
+        try {
+            checkInterval = Long.parseLong(interval.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.staticAssetCacheCheckInterval property : " + interval + ".  Will default to " + checkInterval);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectStaticAssetCacheDeflate(@Named("snow.staticAssetCacheDeflate") String deflate) {
+        this.deflate = "true".equalsIgnoreCase(deflate);
+    }
+    // --------- /Injects --------- //
+
+    public void init() {
+        if (maxSize > 0) {
+            cache = new LruCache<String, StaticAsset>(maxSize) {
+                @Override
+                protected long weigh(String key, StaticAsset value) {
+                    return value.getByteSize();
+                }
+            };
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Return the up to date cached StaticAsset for this resourcePath. This does not load the file (see
+     * {@link #load(String, File)}), so that the caller can check the file existence only once on a miss.
+     * 
+     * @param resourcePath
+     * @return the StaticAsset, or null if the cache is disabled, or if not cached (or not up to date)
+     */
+    public StaticAsset get(String resourcePath) {
+        if (cache == null) {
+            return null;
+        }
+
+        StaticAsset asset = cache.get(resourcePath);
+
+        if (asset != null) {
+            long now = System.currentTimeMillis();
+            if (now - asset.getCheckedAt() >= checkInterval) {
+                File file = asset.getFile();
+                if (file.lastModified() == asset.getLastModified() && file.length() == asset.getContent().length) {
+                    asset.setCheckedAt(now);
+                } else {
+                    cache.remove(resourcePath);
+                    asset = null;
+                }
+            }
+        }
+
+        return asset;
+    }
+
+    /**
+     * Load and cache the StaticAsset of this existing file.
+     * 
+     * @param resourcePath
+     * @param file
+     *            the resolved file of this resourcePath (the caller checked that it exists)
+     * @return the StaticAsset, or null if the cache is disabled, or if the file cannot be cached (not a file, too big,
+     *         or not readable) in which case the caller should serve the file directly
+     */
+    public StaticAsset load(String resourcePath, File file) {
+        if (cache == null) {
+            return null;
+        }
+
+        StaticAsset asset = loadAsset(resourcePath, file);
+        if (asset != null) {
+            cache.put(resourcePath, asset);
+        }
+        return asset;
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return (cache != null) ? cache.getHitCount() : 0;
+    }
+
+    public long getMissCount() {
+        return (cache != null) ? cache.getMissCount() : 0;
+    }
+
+    private StaticAsset loadAsset(String resourcePath, File file) {
+        if (!file.isFile() || file.length() > maxFileSize) {
+            return null;
+        }
+
+        try {
+            // get the lastModified before reading, so that a concurrent change will invalidate the asset
+            long lastModified = file.lastModified();
+            byte[] content = readFile(file);
+
+            byte[] gzipContent = null;
+            byte[] deflateContent = null;
+            if (isCompressible(resourcePath)) {
+                gzipContent = ContentUtil.gzip(content);
+                if (gzipContent.length >= content.length) {
+                    gzipContent = null;
+                }
+                if (deflate) {
+                    deflateContent = ContentUtil.deflate(content);
+                    if (deflateContent.length >= content.length) {
+                        deflateContent = null;
+                    }
+                }
+            }
+
+            String etag = new StringBuilder("\"").append(ContentUtil.md5Hex(content)).append('"').toString();
+
+            return new StaticAsset(resourcePath, file, content, gzipContent, deflateContent, etag, lastModified);
+        } catch (IOException e) {
+            logger.warn("Cannot load static asset " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    static boolean isCompressible(String resourcePath) {
+        String contentType = FileUtil.getExtraMimeType(resourcePath);
+        return contentType != null
+                                && (contentType.startsWith("text") || contentType.indexOf("javascript") != -1
+                                                        || contentType.indexOf("json") != -1 || contentType.indexOf("xml") != -1);
+    }
+
+    static private byte[] readFile(File file) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel channel = fis.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading
+            }
+            if (buffer.hasRemaining()) {
+                // the file got shorter while reading
+                byte[] content = new byte[buffer.position()];
+                System.arraycopy(buffer.array(), 0, content, 0, content.length);
+                return content;
+            }
+            return buffer.array();
+        } finally {
+            fis.close();
+        }
+    }
+}
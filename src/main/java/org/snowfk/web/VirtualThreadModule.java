@@ -0,0 +1,31 @@
+package org.snowfk.web;
+
+import java.util.concurrent.ExecutorService;
+
+import org.snowfk.web.names.AsyncRequestExecutor;
+import org.snowfk.web.names.WebModelExecutor;
+
+import com.google.inject.AbstractModule;
+
+/**
+ * Bind the @AsyncRequestExecutor and @WebModelExecutor to a virtual thread per task executor. Added by the
+ * ApplicationLoader to the default modules when snow.virtualThreads=true and the runtime supports virtual threads.<br />
+ * 
+ * Note: The parallel WebModelHandlers run on their own virtual threads, with the request state bound by the
+ * RequestThreadBinder.
+ */
+public class VirtualThreadModule extends AbstractModule {
+
+    private ExecutorService executor;
+
+    public VirtualThreadModule(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    protected void configure() {
+        bind(ExecutorService.class).annotatedWith(AsyncRequestExecutor.class).toInstance(executor);
+        bind(ExecutorService.class).annotatedWith(WebModelExecutor.class).toInstance(executor);
+    }
+
+}
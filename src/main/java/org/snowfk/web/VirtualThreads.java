@@ -0,0 +1,47 @@
+package org.snowfk.web;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to the virtual thread executor (Java 21+) through reflection, since snow is compiled for older runtimes.
+ */
+public class VirtualThreads {
+    static private Logger       logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    // Executors.newVirtualThreadPerTaskExecutor(), or null if the runtime does not support virtual threads
+    static private final Method newVirtualThreadPerTaskExecutorMethod;
+
+    static {
+        Method method = null;
+        try {
+            method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            // not supported by this runtime
+        }
+        newVirtualThreadPerTaskExecutorMethod = method;
+    }
+
+    static public boolean isSupported() {
+        return newVirtualThreadPerTaskExecutorMethod != null;
+    }
+
+    /**
+     * @return a new ExecutorService starting a virtual thread per task, or null if the runtime does not support virtual
+     *         threads.
+     */
+    static public ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (newVirtualThreadPerTaskExecutorMethod != null) {
+            try {
+                return (ExecutorService) newVirtualThreadPerTaskExecutorMethod.invoke(null);
+            } catch (Exception e) {
+                logger.error("Cannot create the virtual thread executor: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+}
@@ -2,12 +2,16 @@ package org.snowfk.web;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.io.StringReader;
 import java.io.StringWriter;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -18,10 +22,12 @@ import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snowfk.util.FileUtil;
+import org.snowfk.util.ContentUtil;
 import org.snowfk.util.MapUtil;
 import org.snowfk.web.auth.Auth;
 import org.snowfk.web.auth.AuthService;
 import org.snowfk.web.db.hibernate.HibernateSessionInViewHandler;
+import org.snowfk.web.names.AsyncRequestExecutor;
 import org.snowfk.web.part.ContextModelBuilder;
 import org.snowfk.web.renderer.WebBundleManager;
 
@@ -71,22 +77,54 @@ public class WebController {
     @Inject
     private PathFileResolver              pathFileResolver;
 
+    @Inject
+    private StaticAssetCache              staticAssetCache;
+
+    @Inject
+    private ResponseCompressor            responseCompressor;
+
+    @Inject
+    private PageCache                     pageCache;
+
     @Inject
     private ActionNameResolver            actionNameResolver;
 
-    private ThreadLocal<RequestContext>   requestContextTl              = new ThreadLocal<RequestContext>();
+    // holds the current RequestContext of the request threads (and of the web model executor threads)
+    @Inject
+    private RequestThreadBinder           requestThreadBinder;
 
     private CurrentRequestContextHolder   currentRequestContextHolder   = new CurrentRequestContextHolder() {
                                                                             @Override
                                                                             public RequestContext getCurrentRequestContext() {
 
-                                                                                return requestContextTl.get();
+                                                                                return requestThreadBinder.getCurrentRequestContext();
                                                                             }
                                                                         };
 
     // will be injected from .properties file
     private boolean                       ignoreTemplateNotFound        = false;
 
+    // will be injected from .properties file (snow.renderedEtag)
+    private boolean                       renderedEtag                  = false;
+
+    // --------- Async Request Pipeline --------- //
+    // will be injected from .properties file (snow.asyncRequests, snow.asyncThreadPoolSize, snow.asyncTimeout)
+    private boolean                       asyncRequests                 = false;
+    private int                           asyncThreadPoolSize           = 50;
+    // no timeout by default (the task completes the request, see ServletAsyncSupport.startAsync)
+    private long                          asyncTimeout                  = 0;
+
+    @Inject
+    private ServletAsyncSupport           servletAsyncSupport;
+
+    @Inject(optional = true)
+    @AsyncRequestExecutor
+    private ExecutorService               asyncExecutor;
+
+    // true if the asyncExecutor was created by this WebController (and therefore needs to be shutdown by it)
+    private boolean                       ownAsyncExecutor              = false;
+    // --------- /Async Request Pipeline --------- //
+
     public CurrentRequestContextHolder getCurrentRequestContextHolder() {
         return currentRequestContextHolder;
     }
@@ -99,8 +137,60 @@ public class WebController {
         }
     }
 
+    @Inject(optional = true)
+    public void injectRenderedEtag(@Named("snow.renderedEtag") String etag) {
+        if ("true".equalsIgnoreCase(etag)) {
+            renderedEtag = true;
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectAsyncRequests(@Named("snow.asyncRequests") String async) {
+        if ("true".equalsIgnoreCase(async)) {
+            asyncRequests = true;
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectAsyncThreadPoolSize(@Named("snow.asyncThreadPoolSize") String size) {
+        try {
+            asyncThreadPoolSize = Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.asyncThreadPoolSize property : " + size + ".  Will default to " + asyncThreadPoolSize);
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectAsyncTimeout(@Named("snow.asyncTimeout") String timeout) {
+        try {
+            asyncTimeout = Long.parseLong(timeout.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.asyncTimeout property : " + timeout + ".  Will default to " + asyncTimeout);
+        }
+    }
+    // --------- /Injects --------- //
+
     public void init() {
         application.init();
+        staticAssetCache.init();
+        pageCache.init();
+        webBundleManager.init();
+
+        // --------- Initialize the async executor --------- //
+        if (asyncRequests && asyncExecutor == null) {
+            asyncExecutor = Executors.newFixedThreadPool(asyncThreadPoolSize, new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "snow-async-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            ownAsyncExecutor = true;
+        }
+        // --------- /Initialize the async executor --------- //
 
         /* --------- Initialize the FileUploader --------- */
         // Create a factory for disk-based file items
@@ -114,20 +204,75 @@ public class WebController {
     }
 
     public void destroy() {
+        if (ownAsyncExecutor) {
+            asyncExecutor.shutdown();
+        }
+        webBundleManager.shutdown();
         application.shutdown();
     }
 
+    /**
+     * Readiness signal (e.g., for a load balancer health check).
+     * 
+     * @return true when the application is initialized and warmed up (see snow.templateWarmup)
+     */
+    public boolean isReady() {
+        return application.isReady();
+    }
+
+    /**
+     * Service the request.<br />
+     * 
+     * Note: When snow.asyncRequests=true and the container supports it (Servlet 3, and the servlet declared as
+     * async-supported), the request is put in async mode and processed on the asyncExecutor, so, this method might
+     * return before the response is completed.
+     */
     public void service(HttpServletRequest request, HttpServletResponse response) throws Exception {
         request.setCharacterEncoding(CHAR_ENCODING);
         response.setCharacterEncoding(CHAR_ENCODING);
 
         RequestContext rc = new RequestContext(request, response, servletContext, fileUploader);
-        service(rc);
+
+        if (asyncRequests && servletAsyncSupport.isAsyncSupported(request)) {
+            serviceAsync(rc);
+        } else {
+            service(rc);
+        }
+    }
+
+    /**
+     * Start the async context, and run the whole pipeline (auth, web models, action, render) on the asyncExecutor.
+     * Since all the thread bound state (RequestThreadBinder, SessionHolder) is set and cleared by service(rc), it is
+     * bound to the executor thread for the duration of the request.<br />
+     * 
+     * If the executor rejects the task (e.g., shutting down), the request is processed on the calling thread.
+     */
+    private void serviceAsync(final RequestContext rc) throws Exception {
+        final Object asyncContext = servletAsyncSupport.startAsync(rc.getReq(), asyncTimeout);
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    service(rc);
+                } catch (Throwable e) {
+                    logger.error(getLogErrorString(e));
+                } finally {
+                    servletAsyncSupport.complete(asyncContext);
+                }
+            }
+        };
+
+        try {
+            asyncExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
     }
     
     public void service(RequestContext rc) throws Exception{
         
-        requestContextTl.set(rc);
+        requestThreadBinder.bind(rc);
         
         HttpServletRequest request = rc.getReq();
         ResponseType responseType = null;
@@ -177,9 +322,6 @@ public class WebController {
                         webActionResponse = application.processWebAction(actionName, rc);
 
                     } catch (Throwable e) {
-                        if (e instanceof InvocationTargetException) {
-                            e = e.getCause();
-                        }
                         // TODO Need to handle exception
                         logger.error(getLogErrorString(e));
                         webActionResponse = new WebActionResponse(e);
@@ -207,29 +349,16 @@ public class WebController {
                     break;
             }
 
-            // this catch is for when this exception is thrown prior to entering the web handler method.
-            // (e.g. a WebHandlerMethodInterceptor).
+            // the web handler exceptions come through unwrapped (see WebHandlerInvoker), and the Application rethrows
+            // the aborts rather than giving them to the WebExceptionHandlers, so, this catches the aborts thrown from
+            // within the web handler methods as well as from a WebHandlerInterceptor.
         } catch (AbortWithHttpStatusException e) {
             sendHttpError(rc, e.getStatus(), e.getMessage());
         } catch (AbortWithHttpRedirectException e) {
             sendHttpRedirect(rc, e);
         } catch (Throwable e) {
-            if (e instanceof InvocationTargetException) {
-                e = e.getCause();
-            }
-
-            // and now we have to double-handle this one b/c it will be propagated as an InvocationTargetException
-            // when it's thrown from within a web handler.
-            if (e instanceof AbortWithHttpStatusException) {
-                sendHttpError(rc, ((AbortWithHttpStatusException) e).getStatus(), e.getMessage());
-            } else if (e instanceof AbortWithHttpRedirectException) {
-                sendHttpRedirect(rc, (AbortWithHttpRedirectException) e);
-            } else {
-                // and this is the normal case...
-                sendHttpError(rc, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
-                logger.error(getLogErrorString(e));
-            }
-
+            sendHttpError(rc, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
+            logger.error(getLogErrorString(e));
         } finally {
             // --------- RequestLifeCycle End --------- //
             if (requestLifeCycle != null) {
@@ -239,9 +368,11 @@ public class WebController {
 
             // Remove the requestContext from the threadLocal
             // NOTE: might want to do that after the closeSessionInView.
-            requestContextTl.remove();
+            requestThreadBinder.unbind();
 
             // --------- Close HibernateSession --------- //
+            // (including the ones of the parallel web model tasks, kept open for the rendering)
+            requestThreadBinder.closeTaskSessions(rc);
             if (hibernateSessionInViewHandler != null) {
                 hibernateSessionInViewHandler.closeSessionInView();
             }
@@ -257,6 +388,18 @@ public class WebController {
         HttpServletResponse res = rc.getRes();
 
         req.setCharacterEncoding(CHAR_ENCODING);
+
+        // --------- Page Cache --------- //
+        int pageCacheTtl = pageCache.getTtl(rc);
+        if (pageCacheTtl > 0) {
+            StaticAsset page = pageCache.get(rc);
+            if (page != null) {
+                httpWriter.writeAsset(rc, page, false, MapUtil.mapIt("contentType", "text/html;charset=" + CHAR_ENCODING));
+                return;
+            }
+        }
+        // --------- /Page Cache --------- //
+
         Map rootModel = rc.getRootModel();
 
         rootModel.put(MODEL_KEY_REQUEST, ContextModelBuilder.buildRequestModel(rc));
@@ -273,9 +416,41 @@ public class WebController {
         res.setHeader("Cache-Control", "no-cache,no-store,max-age=0");
         res.setDateHeader("Expires", 1);
 
-        application.processTemplate(rc);
-
-        rc.getWriter().close();
+        if (pageCacheTtl > 0) {
+            // read before rendering, so that an invalidate during the rendering makes this page a miss
+            long pageCacheGeneration = pageCache.getGeneration(rc);
+            StaticAsset page = null;
+            try {
+                StringWriter bodyWriter = new StringWriter();
+                rc.setWriter(bodyWriter);
+                application.processTemplate(rc);
+                rc.setWriter(null);
+                // do not cache the pages rendered after an exception
+                if (rc.getHandledException() == null) {
+                    page = pageCache.put(rc, bodyWriter.toString(), pageCacheTtl, pageCacheGeneration);
+                    httpWriter.writeAsset(rc, page, false, MapUtil.mapIt("contentType", res.getContentType()));
+                } else {
+                    writeRenderedBody(rc, bodyWriter.toString(), res.getContentType());
+                }
+            } finally {
+                // not cached, so, let the next request render it again
+                if (page == null) {
+                    pageCache.release(rc);
+                }
+            }
+        } else if (isRenderedEtag(rc) && !application.isEarlyFlush(rc)) {
+            StringWriter bodyWriter = new StringWriter();
+            rc.setWriter(bodyWriter);
+            application.processTemplate(rc);
+            rc.setWriter(null);
+            writeRenderedBody(rc, bodyWriter.toString(), res.getContentType());
+        } else {
+            // early flush (streamed, so, takes precedence over the rendered ETag)
+            boolean earlyFlush = application.isEarlyFlush(rc);
+            responseCompressor.wrapResponse(rc, res.getContentType(), CHAR_ENCODING, earlyFlush);
+            application.processTemplate(rc, earlyFlush);
+            rc.getWriter().close();
+        }
 
     }
 
@@ -293,11 +468,61 @@ public class WebController {
         res.setDateHeader("Expires", 1);
         /* --------- /Set Headers --------- */
 
-        application.processJson(rc);
+        if (isRenderedEtag(rc)) {
+            StringWriter bodyWriter = new StringWriter();
+            rc.setWriter(bodyWriter);
+            application.processJson(rc);
+            rc.setWriter(null);
+            writeRenderedBody(rc, bodyWriter.toString(), res.getContentType());
+        } else {
+            responseCompressor.wrapResponse(rc, res.getContentType(), CHAR_ENCODING);
+            application.processJson(rc);
+            rc.getWriter().close();
+        }
+    }
 
-        rc.getWriter().close();
+    // --------- Rendered ETag --------- //
+    // true if snow.renderedEtag and this is a GET (POST responses are never revalidated)
+    private boolean isRenderedEtag(RequestContext rc) {
+        return renderedEtag && "GET".equals(rc.getReq().getMethod());
     }
 
+    /**
+     * Write the buffered rendered body with an ETag computed from it, or just a 304 Not Modified if the request
+     * If-None-Match matches it (which saves the bandwidth, but not the rendering).
+     */
+    private void writeRenderedBody(RequestContext rc, String body, String contentType) throws IOException {
+        HttpServletResponse res = rc.getRes();
+
+        byte[] content = body.getBytes(CHAR_ENCODING);
+        StringBuilder etagSB = new StringBuilder("\"").append(ContentUtil.md5Hex(content));
+
+        // the gzip representation gets its own ETag
+        if (responseCompressor.isCompressible(contentType)) {
+            res.setHeader("Vary", "Accept-Encoding");
+            if (responseCompressor.shouldCompress(rc, contentType, content.length)) {
+                res.setHeader("Content-Encoding", "gzip");
+                content = ContentUtil.gzip(content);
+                etagSB.append("-gzip");
+            }
+        }
+        String etag = etagSB.append('"').toString();
+
+        // can be revalidated (so, no "no-store")
+        res.setHeader("ETag", etag);
+        res.setHeader("Cache-Control", "no-cache,max-age=0");
+
+        if (HttpWriter.isNotModified(rc.getReq(), etag, -1)) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        } else {
+            res.setContentLength(content.length);
+            OutputStream os = res.getOutputStream();
+            os.write(content);
+            os.close();
+        }
+    }
+    // --------- /Rendered ETag --------- //
+
     public void serviceFallback(RequestContext rc) throws Throwable {
 
         String contextPath = rc.getContextPath();
@@ -306,21 +531,40 @@ public class WebController {
         String href = new StringBuilder(contextPath).append(resourcePath).toString();
 
         if (webBundleManager.isWebBundle(resourcePath)) {
-            String content = webBundleManager.getContent(resourcePath);
-            StringReader reader = new StringReader(content);
-            httpWriter.writeStringContent(rc, href, reader, false, null);
+            StaticAsset webBundle = webBundleManager.getWebBundle(resourcePath);
+            if (webBundle != null) {
+                // a current fingerprint (__key__) url changes with the bundle content, so, it can be cached forever.
+                // Any other url (no key, a stale or custom key) serves the current content, so, must be revalidated.
+                Map options = (webBundleManager.isCurrentFingerprint(resourcePath, webBundle)) ? MapUtil.mapIt("immutable", true) : null;
+                httpWriter.writeAsset(rc, webBundle, false, options);
+            } else {
+                sendHttpError(rc, HttpServletResponse.SC_NOT_FOUND, null);
+            }
         } else {
             // First, see and process the eventual WebFileHandler
             boolean webFileProcessed = application.processWebFile(rc);
 
             // if not processed, then, default processing
             if (!webFileProcessed) {
-                File resourceFile = pathFileResolver.resolve(resourcePath);
-                if (resourceFile.exists()) {
-                    boolean isCachable = isCachable(resourcePath);
-                    httpWriter.writeFile(rc, resourceFile, isCachable, null);
+                boolean isCachable = isCachable(resourcePath);
+                // serve from the static asset cache (null if disabled or not cached yet)
+                StaticAsset asset = staticAssetCache.get(resourcePath);
+                if (asset != null) {
+                    httpWriter.writeAsset(rc, asset, isCachable, null);
                 } else {
-                    sendHttpError(rc, HttpServletResponse.SC_NOT_FOUND, null);
+                    File resourceFile = pathFileResolver.resolve(resourcePath);
+                    // the only file system check of a 404
+                    if (resourceFile.exists()) {
+                        // null if the cache is disabled or if the file is too big to be cached
+                        asset = staticAssetCache.load(resourcePath, resourceFile);
+                        if (asset != null) {
+                            httpWriter.writeAsset(rc, asset, isCachable, null);
+                        } else {
+                            httpWriter.writeFile(rc, resourceFile, isCachable, null);
+                        }
+                    } else {
+                        sendHttpError(rc, HttpServletResponse.SC_NOT_FOUND, null);
+                    }
                 }
             }
 
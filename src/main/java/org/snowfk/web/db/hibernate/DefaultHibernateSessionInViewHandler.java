@@ -58,4 +58,11 @@ public class DefaultHibernateSessionInViewHandler implements HibernateSessionInV
         SessionHolder.removeThreadSessionHolder();
     }
 
+    @Override
+    public SessionHolder detachSessionInView() {
+        SessionHolder sessionHolder = SessionHolder.getThreadSessionHolder();
+        SessionHolder.removeThreadSessionHolder();
+        return sessionHolder;
+    }
+
 }
@@ -7,4 +7,12 @@ public interface HibernateSessionInViewHandler {
     public void afterActionProcessing();
     
     public void closeSessionInView();
+
+    /**
+     * Remove the session in view from the current thread without closing it (e.g., the session of a parallel web
+     * model task, closed at the end of the request, once the template has been rendered).
+     *
+     * @return the session in view of the current thread, or null if none
+     */
+    public SessionHolder detachSessionInView();
 }
@@ -22,6 +22,8 @@ import org.snowfk.web.method.argument.WebUser;
 public class BaseWebHandlerRef {
     protected Object       webHandler;
     protected Method       method;
+    // built once at registration time
+    protected WebHandlerInvoker invoker;
     protected List<WebArgRef> webArgRefs = new ArrayList<WebArgRef>();
     protected Map<Class<? extends Annotation>,WebParameterParser> webParameterParserMap;
     
@@ -29,6 +31,9 @@ public class BaseWebHandlerRef {
         this.webHandler = webHandler;
         this.method = method;
         this.webParameterParserMap = webParameterParserMap;
+        if (method != null){
+            this.invoker = WebHandlerInvokers.create(method);
+        }
     }
     
     protected void initWebParamRefs(){
@@ -59,6 +64,7 @@ public class BaseWebHandlerRef {
                 else{
                     webParamRef = new WebArgRef(paramClass);
                 }
+                webParamRef.initResolver();
                 webArgRefs.add(webParamRef);
                 
                 i++;
@@ -102,7 +108,11 @@ public class BaseWebHandlerRef {
     }
     
     /*--------- Invocation Methods ---------*/
-    
-
+    /**
+     * Invoke the web handler method with these param values. The exceptions thrown by the method are not wrapped. 
+     */
+    protected Object invoke(Object[] paramValues) throws Exception{
+        return invoker.invoke(webHandler, paramValues);
+    }
     /*--------- /Invocation Methods ---------*/
 }
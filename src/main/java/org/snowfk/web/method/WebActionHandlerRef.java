@@ -39,7 +39,7 @@ public class WebActionHandlerRef extends BaseWebHandlerRef{
         for (WebArgRef webParamRef : webArgRefs){
             paramValues[i++] = webParamRef.getValue(method, rc);
         }
-        return method.invoke(webHandler, paramValues);
+        return invoke(paramValues);
     }
 
     
@@ -44,7 +44,7 @@ public class WebExceptionHandlerRef extends BaseWebHandlerRef {
             }
         }
         
-        method.invoke(webHandler,paramValues);
+        invoke(paramValues);
     }	
 
 }
@@ -14,43 +14,73 @@ import org.snowfk.web.method.argument.WebParameterParser;
 public class WebFileHandlerRef extends BaseWebHandlerRef implements PathMatcher {
 
     private WebFileHandler webFile;
+    
+    // computed once at registration time
+    private String[]       lowerCaseExts;
+    private Pattern[]      matchesPatterns;
 
     public WebFileHandlerRef(Object object, Method method, Map<Class<? extends Annotation>,WebParameterParser> webParameterParserMap,
                              WebFileHandler webFile) {
         super(object, method, webParameterParserMap);
         this.webFile = webFile;
         initWebParamRefs();
+        initMatchers();
+    }
+    
+    private void initMatchers(){
+        String[] exts = webFile.ext();
+        lowerCaseExts = new String[exts.length];
+        for (int i = 0; i < exts.length; i++){
+            lowerCaseExts[i] = exts[i].toLowerCase();
+        }
+        
+        String[] matches = webFile.matches();
+        matchesPatterns = new Pattern[matches.length];
+        for (int i = 0; i < matches.length; i++){
+            matchesPatterns[i] = Pattern.compile(matches[i]);
+        }
+    }
+    
+    /**
+     * @return the lower case extensions (with the '.') this WebFileHandler is registered for. 
+     */
+    public String[] getLowerCaseExts(){
+        return lowerCaseExts;
     }
 
     @Override
     public boolean matchesPath(String path) {
-        String[] fileNameAndExt = FileUtil.getFileNameAndExtension(path);
+        String ext = FileUtil.getFileNameAndExtension(path)[1].toLowerCase();
         boolean match = false;
         //first match the ext.
-        for (String ext : webFile.ext()) {
-            
-            if (ext.equalsIgnoreCase(fileNameAndExt[1])) {
+        for (String lowerCaseExt : lowerCaseExts) {
+            if (lowerCaseExt.equals(ext)) {
                 match = true;
                 break;
             }
         }
 
         //if the match match, then, match the matches
-        if (match) {
-            for (String regex : webFile.matches()) {
-                Pattern pat = Pattern.compile(regex);
-                Matcher mat = pat.matcher(path);
-                Boolean matches = mat.matches();
-                if (matches) {
-                    match = true;
-                    break;
-                }else{
-                    match = false;
-                }
+        return match && matchesPatterns(path);
+    }
+    
+    /**
+     * Match only the "matches" regexes (the extension is expected to have been matched already). 
+     * 
+     * @param path
+     * @return true if one of the matches regexes matches the path, or if there is no matches regex.
+     */
+    public boolean matchesPatterns(String path) {
+        if (matchesPatterns.length == 0){
+            return true;
+        }
+        for (Pattern pat : matchesPatterns) {
+            Matcher mat = pat.matcher(path);
+            if (mat.matches()) {
+                return true;
             }
         }
-
-        return match;
+        return false;
     }
 
     public Object invokeWebFile(RequestContext rc) throws Exception {
@@ -59,7 +89,7 @@ public class WebFileHandlerRef extends BaseWebHandlerRef implements PathMatcher
         for (WebArgRef webParamRef : webArgRefs) {
             paramValues[i++] = webParamRef.getValue(method, rc);
         }
-        return method.invoke(webHandler, paramValues);
+        return invoke(paramValues);
     }
 
 }
@@ -0,0 +1,14 @@
+package org.snowfk.web.method;
+
+/**
+ * Invoke a web handler method (built once per handler method at registration time).<br />
+ * 
+ * Note: Unlike Method.invoke, the exceptions thrown by the web handler method come through unwrapped (i.e., no
+ * InvocationTargetException).
+ * 
+ * @see WebHandlerInvokers#create(java.lang.reflect.Method)
+ */
+public interface WebHandlerInvoker {
+
+    public Object invoke(Object webHandler, Object[] args) throws Exception;
+}
@@ -0,0 +1,57 @@
+package org.snowfk.web.method;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Factory for the WebHandlerInvokers.<br />
+ * 
+ * The invoker uses reflection, with the access checks disabled once at creation time. Note that on HotSpot, the
+ * reflective calls get inflated into generated accessors after a few invocations, so, a generated direct call invoker
+ * is not faster (see WebHandlerInvokerBenchmark).
+ */
+public class WebHandlerInvokers {
+
+    static public WebHandlerInvoker create(Method method) {
+        return new ReflectionInvoker(method);
+    }
+
+    /**
+     * Unwrap the InvocationTargetException and rethrow the web handler exception as is.
+     */
+    static Exception unwrap(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause instanceof Exception) {
+            return (Exception) cause;
+        } else {
+            return e;
+        }
+    }
+
+    // --------- Invokers --------- //
+    static class ReflectionInvoker implements WebHandlerInvoker {
+        private final Method method;
+
+        ReflectionInvoker(Method method) {
+            this.method = method;
+            try {
+                // skip the access checks on each call
+                method.setAccessible(true);
+            } catch (SecurityException e) {
+                // ignore, Method.invoke will do the access checks
+            }
+        }
+
+        @Override
+        public Object invoke(Object webHandler, Object[] args) throws Exception {
+            try {
+                return method.invoke(webHandler, args);
+            } catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        }
+    }
+    // --------- /Invokers --------- //
+}
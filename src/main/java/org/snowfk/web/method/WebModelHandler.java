@@ -15,4 +15,35 @@ public @interface WebModelHandler {
     String[] startsWith() default {};
     String[] matches() default {};
     boolean leafPath() default false;
+
+    /**
+     * When true, this WebModelHandler does not depend on the other WebModelHandlers of the same request, and can be
+     * run concurrently with the other parallel WebModelHandlers that directly precede or follow it in the invocation
+     * order (root, startsWith, matches). The model Map given to a parallel handler is thread-safe.<br />
+     * 
+     * Note: parallel handlers run on the Application web model executor threads. The current RequestContext (see
+     * CurrentRequestContextHolder) is bound to these threads, but each of them gets its own Hibernate session in view
+     * (see RequestThreadBinder), so, the entities loaded by a parallel handler are not in the request session. This
+     * session stays open until the end of the request, so, their lazy associations can still be loaded by the
+     * template.<br />
+     * 
+     * The RequestContext is shared by the parallel handlers: its params and cookies are parsed before they run, and
+     * can be read concurrently, but a parallel handler must not modify it (e.g., setCookie).
+     */
+    boolean parallel() default false;
+
+    /**
+     * Seconds the pages built by this WebModelHandler can be served from the PageCache to the anonymous GET requests
+     * (0 to never cache them, -1 to leave it to the other WebModelHandlers and the snow.pageCachePaths property). When
+     * more than one WebModelHandler of a page set it, the smallest one wins.
+     */
+    int pageCacheTtl() default -1;
+
+    /**
+     * When true (and snow.earlyFlush is true), the pages built by this WebModelHandler flush their frame head before
+     * their WebModelHandlers run (see Application.processTemplate). Since the response is then committed, none of the
+     * WebModelHandlers of these pages should abort (AbortWithHttpStatusException, AbortWithHttpRedirectException) or
+     * rely on a WebExceptionHandler error page.
+     */
+    boolean earlyFlush() default false;
 }
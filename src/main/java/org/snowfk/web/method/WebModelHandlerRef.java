@@ -17,6 +17,9 @@ import org.snowfk.web.method.argument.WebParameterParser;
 public class WebModelHandlerRef extends BaseWebHandlerRef implements PathMatcher {
 
     WebModelHandler webModel;
+    
+    // the webModel.matches() regexes, compiled once at registration time
+    private Pattern[] matchesPatterns;
 
     public WebModelHandlerRef(Object object, Method method, Map<Class<? extends Annotation>,WebParameterParser> webParameterParserMap,
                               WebModelHandler webModel) {
@@ -24,6 +27,31 @@ public class WebModelHandlerRef extends BaseWebHandlerRef implements PathMatcher
         this.webModel = webModel;
         
         initWebParamRefs();
+        initMatchesPatterns();
+    }
+    
+    private void initMatchesPatterns(){
+        String[] matches = (webModel != null) ? webModel.matches() : new String[0];
+        matchesPatterns = new Pattern[matches.length];
+        for (int i = 0; i < matches.length; i++){
+            matchesPatterns[i] = Pattern.compile(matches[i]);
+        }
+    }
+    
+    public Pattern[] getMatchesPatterns(){
+        return matchesPatterns;
+    }
+
+    public boolean isParallel(){
+        return webModel != null && webModel.parallel();
+    }
+
+    public int getPageCacheTtl(){
+        return (webModel != null) ? webModel.pageCacheTtl() : -1;
+    }
+
+    public boolean isEarlyFlush(){
+        return webModel != null && webModel.earlyFlush();
     }
 
     
@@ -32,21 +60,13 @@ public class WebModelHandlerRef extends BaseWebHandlerRef implements PathMatcher
      */
     @Override
     public boolean matchesPath(String path){
-        if (webModel != null && webModel.matches().length > 0){
-            /**/
-            for (String regex : webModel.matches()){
-                Pattern pat = Pattern.compile(regex);
-                Matcher mat = pat.matcher(path);
-                Boolean matches = mat.matches();
-                if (matches){
-                    return true;
-                }
-                
+        for (Pattern pat : matchesPatterns){
+            Matcher mat = pat.matcher(path);
+            if (mat.matches()){
+                return true;
             }
-            return false;
-        }else{
-            return false;
         }
+        return false;
     }
     
     public void invokeWebModel(Map m,RequestContext rc) throws Exception{
@@ -62,7 +82,7 @@ public class WebModelHandlerRef extends BaseWebHandlerRef implements PathMatcher
             }
         }
         
-        method.invoke(webHandler,paramValues);
+        invoke(paramValues);
     }
     
     public String toString(){
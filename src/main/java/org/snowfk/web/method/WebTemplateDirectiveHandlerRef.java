@@ -35,6 +35,6 @@ public class WebTemplateDirectiveHandlerRef extends BaseWebHandlerRef {
             }
         }
         
-        method.invoke(webHandler,paramValues);
+        invoke(paramValues);
     }
 }
@@ -11,6 +11,8 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.snowfk.util.ObjectUtil;
+import org.snowfk.util.ObjectUtil.ValueConverter;
 import org.snowfk.web.RequestContext;
 
 public class WebArgRef {
@@ -27,6 +29,9 @@ public class WebArgRef {
 
     private Class     paramClass;
 
+    // built once from the annotations and paramClass above (see initResolver)
+    private Resolver  resolver;
+
     public WebArgRef(Class paramClass) {
         this.paramClass = paramClass;
     }
@@ -70,46 +75,65 @@ public class WebArgRef {
     public Class getArgClass(){
     	return paramClass;
     }
-    @SuppressWarnings("unchecked")
+
+    /**
+     * Build the resolver for this argument (called once by BaseWebHandlerRef.initWebParamRefs, at registration time).
+     */
+    public void initResolver() {
+        resolver = buildResolver();
+    }
+
     public Object getValue(Method m, RequestContext rc) {
-        Object value = null;
+        Resolver r = resolver;
+        // in case the WebArgRef was not initialized by a BaseWebHandlerRef
+        if (r == null) {
+            r = resolver = buildResolver();
+        }
+        return r.resolve(m, rc);
+    }
+
+    // --------- Resolvers --------- //
+    /*
+     * Note: The order of the tests is the order in which the argument kinds take precedence (e.g., a RequestContext
+     * argument is always the RequestContext, whatever its annotation).
+     */
+    private Resolver buildResolver() {
         if (paramClass == RequestContext.class) {
-            value = rc;
+            return REQUEST_CONTEXT_RESOLVER;
         } else if (paramClass == HttpServletRequest.class) {
-            value = rc.getReq();
+            return HTTP_REQUEST_RESOLVER;
         } else if (paramClass == HttpServletResponse.class) {
-            value = rc.getRes();
+            return HTTP_RESPONSE_RESOLVER;
         } else if (paramClass == ServletContext.class) {
-            value = rc.getServletContext();
+            return SERVLET_CONTEXT_RESOLVER;
         } else if (webParam != null && paramClass == Map.class) {
-            value = rc.getParamMap(webParam.value());
+            return new ParamMapResolver(webParam.value());
         } else if (webMap != null) {
-            value = rc.getWebMap();
+            return WEB_MAP_RESOLVER;
         } else if (webUser != null) {
-            if (rc.getAuth() != null) {
-                value = rc.getAuth().getUser();
-            }
-        } else if (webState != null){
+            return WEB_USER_RESOLVER;
+        } else if (webState != null) {
             // FIXME: needs to add webState back
             //value = rc.getWebState(webState.value());
-        }else if (webEntity != null){
+            return NULL_RESOLVER;
+        } else if (webEntity != null) {
             // FIXME: needs to fix that. 
             //String paramName = webEntity.value();
             //FIXME: FOR NOW ONLY support LONG for WebEntity. THIS NEED TO BE FIXED!
             //Long entityId = rc.getParam(paramName,Long.class);
             //value = rc.getEntity(paramClass, entityId);
-            
+            return NULL_RESOLVER;
         } else if (webPath != null) {
             //if the index has been set, then, return the single Path and convert to the appropriate type.
             if (webPath.value() > -1) {
-                value = rc.getResourcePathAt(webPath.value(), paramClass, null);
+                return new WebPathAtResolver(webPath.value(), paramClass);
             }
             //otherwise, return the full path
             else {
-                value = rc.getResourcePath();
+                return WEB_PATH_RESOLVER;
             }
         } else if (webParameterParser != null) {
-            value = webParameterParser.getParameterValue(m, webParameterAnnotation, paramClass, rc);
+            return new WebParameterParserResolver(webParameterParser, webParameterAnnotation, paramClass);
         } else {
             String paramName;
             if (webParam != null) {
@@ -120,10 +144,149 @@ public class WebArgRef {
                 paramName = paramName.substring(0, 1).toLowerCase() + paramName.substring(1);
             }
 
-            value = rc.getParam(paramName, paramClass);
+            // choose the conversion once for this paramClass
+            if (RequestContext.isSingleValueParamClass(paramClass)) {
+                return new SingleValueParamResolver(paramName, paramClass);
+            } else {
+                return new BeanParamResolver(paramName, paramClass);
+            }
+        }
+    }
+
+    static private interface Resolver {
+        public Object resolve(Method m, RequestContext rc);
+    }
+
+    static private final Resolver REQUEST_CONTEXT_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return rc;
         }
+    };
+
+    static private final Resolver HTTP_REQUEST_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return rc.getReq();
+        }
+    };
+
+    static private final Resolver HTTP_RESPONSE_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return rc.getRes();
+        }
+    };
+
+    static private final Resolver SERVLET_CONTEXT_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return rc.getServletContext();
+        }
+    };
+
+    static private final Resolver WEB_MAP_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return rc.getWebMap();
+        }
+    };
+
+    static private final Resolver WEB_USER_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return (rc.getAuth() != null) ? rc.getAuth().getUser() : null;
+        }
+    };
+
+    static private final Resolver WEB_PATH_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return rc.getResourcePath();
+        }
+    };
+
+    static private final Resolver NULL_RESOLVER = new Resolver() {
+        public Object resolve(Method m, RequestContext rc) {
+            return null;
+        }
+    };
+
+    static private class ParamMapResolver implements Resolver {
+        private final String prefix;
 
-        return value;
+        ParamMapResolver(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Object resolve(Method m, RequestContext rc) {
+            return rc.getParamMap(prefix);
+        }
+    }
+
+    static private class WebPathAtResolver implements Resolver {
+        private final int            index;
+        private final ValueConverter converter;
+
+        WebPathAtResolver(int index, Class paramClass) {
+            this.index = index;
+            this.converter = ObjectUtil.getValueConverter(paramClass);
+        }
+
+        public Object resolve(Method m, RequestContext rc) {
+            return converter.convert(rc.getResourcePathAt(index), null);
+        }
+    }
+
+    static private class WebParameterParserResolver implements Resolver {
+        private final WebParameterParser webParameterParser;
+        private final Annotation         webParameterAnnotation;
+        private final Class              paramClass;
+
+        WebParameterParserResolver(WebParameterParser webParameterParser, Annotation webParameterAnnotation, Class paramClass) {
+            this.webParameterParser = webParameterParser;
+            this.webParameterAnnotation = webParameterAnnotation;
+            this.paramClass = paramClass;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object resolve(Method m, RequestContext rc) {
+            return webParameterParser.getParameterValue(m, webParameterAnnotation, paramClass, rc);
+        }
+    }
+
+    /**
+     * Same as RequestContext.getSingleValueParam, but with the converter chosen once for the paramClass.
+     */
+    static private class SingleValueParamResolver implements Resolver {
+        private final String         paramName;
+        private final ValueConverter converter;
+
+        SingleValueParamResolver(String paramName, Class paramClass) {
+            this.paramName = paramName;
+            this.converter = ObjectUtil.getValueConverter(paramClass);
+        }
+
+        public Object resolve(Method m, RequestContext rc) {
+            Object valueObject = rc.getRawParam(paramName);
+            if (valueObject instanceof String) {
+                return converter.convert((String) valueObject, null);
+            } else if (valueObject instanceof String[]) {
+                return converter.convert((String[]) valueObject, null);
+            } else {
+                // null or FileItem
+                return valueObject;
+            }
+        }
+    }
+
+    static private class BeanParamResolver implements Resolver {
+        private final String paramName;
+        private final Class  paramClass;
+
+        BeanParamResolver(String paramName, Class paramClass) {
+            this.paramName = paramName;
+            this.paramClass = paramClass;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Object resolve(Method m, RequestContext rc) {
+            return rc.getBeanParam(paramName, paramClass, null);
+        }
     }
+    // --------- /Resolvers --------- //
 
 }
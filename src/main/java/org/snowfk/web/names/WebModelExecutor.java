@@ -0,0 +1,20 @@
+package org.snowfk.web.names;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import com.google.inject.BindingAnnotation;
+
+/**
+ * Optional ExecutorService binding for the @WebModelHandler(parallel=true) handlers. If not bound, the Application
+ * creates a fixed thread pool of snow.webModelThreadPoolSize threads.
+ */
+@BindingAnnotation 
+@Target({ ElementType.FIELD, ElementType.PARAMETER, ElementType.METHOD }) 
+@Retention(RUNTIME)
+public @interface WebModelExecutor {
+
+}
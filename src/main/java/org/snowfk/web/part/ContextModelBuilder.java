@@ -3,12 +3,14 @@
  */
 package org.snowfk.web.part;
 
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
 
 import org.snowfk.web.RequestContext;
 import org.snowfk.web.WebStateProxy;
@@ -31,76 +33,137 @@ public class ContextModelBuilder {
     private static final String MODEL_KEY_AUTH            = "auth";
     private static final String MODEL_KEY_HTTP_REQUEST    = "req";
     private static final String MODEL_KEY_HTTP_RESPONSE   = "res";
-
+    private static final String MODEL_KEY_WEB_STATE       = "webState";
+
+    private static final String[] MODEL_KEYS = { MODEL_KEY_REQUEST_CONTEXT, MODEL_KEY_AUTH, MODEL_KEY_USER,
+            MODEL_KEY_HTTP_REQUEST, MODEL_KEY_HTTP_RESPONSE, MODEL_KEY_CONTEXT_PATH, MODEL_KEY_PATH_INFO,
+            MODEL_KEY_FULL_PATH, MODEL_KEY_PARAMS, MODEL_KEY_QUERY_STRING, MODEL_KEY_HREF, MODEL_KEY_HEADERS,
+            MODEL_KEY_COOKIES, MODEL_KEY_WEB_STATE };
+
+    /**
+     * Build the "r" model of this request.<br />
+     * <br />
+     * 
+     * The returned Map is lazy: each entry (e.g., the headers "h", the cookies "c", the params "p") is computed the
+     * first time it is read, so that a template that does not use them does not pay for them.
+     */
     public static Map<?, ?> buildRequestModel(RequestContext rc) {
-        HttpServletRequest request = rc.getReq();
-        HttpServletResponse response = rc.getRes();
-
-        HashMap<String, Object> requestMap = new HashMap<String, Object>();
+        return new LazyRequestModel(rc);
+    }
 
-        requestMap.put(MODEL_KEY_REQUEST_CONTEXT, rc);
+    static private class LazyRequestModel extends AbstractMap<String, Object> {
+        private final RequestContext rc;
+        // the entries computed (or put) so far (null until the first one)
+        private Map<String, Object>  values;
 
-        /*--------- Include user and auth ---------*/
-        /**/
-        Auth<?> auth = rc.getAuth();
-        if (auth != null) {
-            requestMap.put(MODEL_KEY_AUTH, auth);
-            requestMap.put(MODEL_KEY_USER, auth.getUser());
+        LazyRequestModel(RequestContext rc) {
+            this.rc = rc;
         }
 
-        /*--------- /Include user and auth ---------*/
-
-        /* --------- Include the HTTPRequest and HTTPResponse/ --------- */
-        requestMap.put(MODEL_KEY_HTTP_REQUEST, request);
-        requestMap.put(MODEL_KEY_HTTP_RESPONSE, response);
-
-        // add the context path
-        requestMap.put(MODEL_KEY_CONTEXT_PATH, request.getContextPath());
-
-        // add the pathInfo
-        String pathInfo = rc.getPathInfo();
-        requestMap.put(MODEL_KEY_PATH_INFO, pathInfo);
-
-        //add the fullPath
-        StringBuilder fullPathSB = new StringBuilder(request.getContextPath());
-        fullPathSB.append(pathInfo);
-        requestMap.put(MODEL_KEY_FULL_PATH, fullPathSB.toString());
-
-        /* --------- Include the Request Params --------- */
-        requestMap.put(MODEL_KEY_PARAMS, rc.getParamMap());
-        /* --------- /Include the Request Params --------- */
-
-        String queryString = request.getQueryString();
-        requestMap.put(MODEL_KEY_QUERY_STRING, queryString);
-
-        if (queryString != null && queryString.length() > 0) {
-            requestMap.put(MODEL_KEY_HREF, fullPathSB.append('?').append(queryString));
-        } else {
-            requestMap.put(MODEL_KEY_HREF, fullPathSB.toString());
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            if (values != null && values.containsKey(key)) {
+                return values.get(key);
+            }
+            if (!containsKey(key)) {
+                return null;
+            }
+            Object value = computeValue((String) key);
+            if (values == null) {
+                values = new HashMap<String, Object>();
+            }
+            values.put((String) key, value);
+            return value;
         }
 
-        /* --------- Include Headers --------- */
-        HashMap<String, Object> headersMap = new HashMap<String, Object>();
-        requestMap.put(MODEL_KEY_HEADERS, headersMap);
-
-        Enumeration headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String headerName = (String) headerNames.nextElement();
-            String headerValue = request.getHeader(headerName);
-            headersMap.put(headerName, headerValue);
+        @Override
+        public boolean containsKey(Object key) {
+            if (values != null && values.containsKey(key)) {
+                return true;
+            }
+            // auth and user are in the model only if the request has been authenticated
+            if (MODEL_KEY_AUTH.equals(key) || MODEL_KEY_USER.equals(key)) {
+                return rc.getAuth() != null;
+            }
+            for (String modelKey : MODEL_KEYS) {
+                if (modelKey.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
         }
-        /* --------- /Include Headers --------- */
 
-        /* --------- Include Cookies --------- */
-        requestMap.put(MODEL_KEY_COOKIES, rc.getCookieMap());
-        /* --------- /Include Cookies --------- */
+        @Override
+        public Object put(String key, Object value) {
+            Object oldValue = get(key);
+            if (values == null) {
+                values = new HashMap<String, Object>();
+            }
+            values.put(key, value);
+            return oldValue;
+        }
 
-        // --------- Include the WebState --------- //
-        requestMap.put("webState", new WebStateProxy(rc));
-        // --------- Include the WebState --------- //
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            // iterating needs all the entries
+            for (String modelKey : MODEL_KEYS) {
+                get(modelKey);
+            }
+            return (values != null) ? Collections.unmodifiableMap(values).entrySet()
+                                    : Collections.<String, Object> emptyMap().entrySet();
+        }
 
-        return requestMap;
+        private Object computeValue(String key) {
+            HttpServletRequest request = rc.getReq();
+
+            if (MODEL_KEY_REQUEST_CONTEXT.equals(key)) {
+                return rc;
+            } else if (MODEL_KEY_AUTH.equals(key)) {
+                return rc.getAuth();
+            } else if (MODEL_KEY_USER.equals(key)) {
+                Auth<?> auth = rc.getAuth();
+                return (auth != null) ? auth.getUser() : null;
+            } else if (MODEL_KEY_HTTP_REQUEST.equals(key)) {
+                return request;
+            } else if (MODEL_KEY_HTTP_RESPONSE.equals(key)) {
+                return rc.getRes();
+            } else if (MODEL_KEY_CONTEXT_PATH.equals(key)) {
+                return request.getContextPath();
+            } else if (MODEL_KEY_PATH_INFO.equals(key)) {
+                return rc.getPathInfo();
+            } else if (MODEL_KEY_FULL_PATH.equals(key)) {
+                return new StringBuilder(request.getContextPath()).append(rc.getPathInfo()).toString();
+            } else if (MODEL_KEY_PARAMS.equals(key)) {
+                return rc.getParamMap();
+            } else if (MODEL_KEY_QUERY_STRING.equals(key)) {
+                return request.getQueryString();
+            } else if (MODEL_KEY_HREF.equals(key)) {
+                String fullPath = (String) get(MODEL_KEY_FULL_PATH);
+                String queryString = request.getQueryString();
+                if (queryString != null && queryString.length() > 0) {
+                    return new StringBuilder(fullPath).append('?').append(queryString).toString();
+                } else {
+                    return fullPath;
+                }
+            } else if (MODEL_KEY_HEADERS.equals(key)) {
+                HashMap<String, Object> headersMap = new HashMap<String, Object>();
+                Enumeration headerNames = request.getHeaderNames();
+                while (headerNames.hasMoreElements()) {
+                    String headerName = (String) headerNames.nextElement();
+                    String headerValue = request.getHeader(headerName);
+                    headersMap.put(headerName, headerValue);
+                }
+                return headersMap;
+            } else if (MODEL_KEY_COOKIES.equals(key)) {
+                return rc.getCookieMap();
+            } else if (MODEL_KEY_WEB_STATE.equals(key)) {
+                return new WebStateProxy(rc);
+            }
+            return null;
+        }
     }
 
 }
-
@@ -7,9 +7,13 @@ import net.sf.json.JSONSerializer;
 import net.sf.json.JsonConfig;
 import net.sf.json.util.CycleDetectionStrategy;
 
-public class DefaultJsonRenderer{
+/**
+ * The json-lib JsonRenderer (builds the whole json-lib object tree, and then its String, before writing it).
+ */
+public class DefaultJsonRenderer implements JsonRenderer {
     static private final String[] excludes = {"stackTrace"};
 
+    @Override
     public void render(Object data, Writer out) {
         String jsonString;
 
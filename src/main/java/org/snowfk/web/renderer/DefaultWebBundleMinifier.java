@@ -0,0 +1,237 @@
+package org.snowfk.web.renderer;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Default WebBundleMinifier, which strips the comments and the unnecessary whitespaces (strings and regex literals are
+ * left untouched, as well as the "/*! ... *&#47;" license comments).<br />
+ * <br />
+ *
+ * Note: For JavaScript, the line breaks are kept (as a single "\n") so that the automatic semicolon insertion still
+ * works.
+ */
+public class DefaultWebBundleMinifier implements WebBundleMinifier {
+
+    static private final String      JS_REGEX_PRECEDING_CHARS    = "(,=:[!&|?{};+-*%<>~^";
+    static private final Set<String> JS_REGEX_PRECEDING_KEYWORDS = new HashSet<String>(Arrays.asList("return", "typeof",
+                                                                                          "instanceof", "in", "of",
+                                                                                          "new", "delete", "void",
+                                                                                          "throw", "case", "do",
+                                                                                          "else", "yield", "await"));
+    // no space needed before or after these chars in css
+    static private final String      CSS_SEPARATOR_CHARS         = "{};,>";
+
+    @Override
+    public String minify(String content, String fileExt) {
+        if (".js".equalsIgnoreCase(fileExt)) {
+            return minifyJs(content);
+        } else if (".css".equalsIgnoreCase(fileExt)) {
+            return minifyCss(content);
+        } else {
+            return content;
+        }
+    }
+
+    // --------- JavaScript --------- //
+    String minifyJs(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            char next = (i + 1 < n) ? s.charAt(i + 1) : 0;
+            if (c == '\'' || c == '"' || c == '`') {
+                i = copyQuoted(s, i, out, c != '`');
+            } else if (c == '/' && next == '/') {
+                // line comment (keep the \n)
+                while (i < n && s.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && next == '*') {
+                int end = s.indexOf("*/", i + 2);
+                end = (end == -1) ? n : end + 2;
+                if (i + 2 < n && s.charAt(i + 2) == '!') {
+                    out.append(s, i, end);
+                } else if (s.substring(i, end).indexOf('\n') != -1) {
+                    appendNewLine(out);
+                } else {
+                    appendSpace(out);
+                }
+                i = end;
+            } else if (c == '/' && isJsRegexStart(out)) {
+                i = copyRegex(s, i, out);
+            } else if (c == '\n') {
+                appendNewLine(out);
+                i++;
+            } else if (Character.isWhitespace(c)) {
+                appendSpace(out);
+                i++;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return trimEnd(out).toString();
+    }
+
+    /**
+     * @return true if the "/" that comes after the out content starts a regex literal (rather than being a division)
+     */
+    static private boolean isJsRegexStart(StringBuilder out) {
+        int i = out.length() - 1;
+        while (i >= 0 && Character.isWhitespace(out.charAt(i))) {
+            i--;
+        }
+        if (i < 0) {
+            return true;
+        }
+        char c = out.charAt(i);
+        // a postfix "++" or "--" ends an operand (e.g., "a++ / 2")
+        if ((c == '+' || c == '-') && i > 0 && out.charAt(i - 1) == c) {
+            return false;
+        }
+        if (JS_REGEX_PRECEDING_CHARS.indexOf(c) != -1) {
+            return true;
+        }
+        if (Character.isJavaIdentifierPart(c)) {
+            int end = i + 1;
+            while (i >= 0 && Character.isJavaIdentifierPart(out.charAt(i))) {
+                i--;
+            }
+            return JS_REGEX_PRECEDING_KEYWORDS.contains(out.substring(i + 1, end));
+        }
+        return false;
+    }
+
+    static private int copyRegex(String s, int i, StringBuilder out) {
+        int n = s.length();
+        boolean inClass = false;
+        out.append(s.charAt(i++));
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '\n') {
+                // not a regex after all, stop here
+                return i;
+            }
+            out.append(c);
+            i++;
+            if (c == '\\' && i < n) {
+                out.append(s.charAt(i++));
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass) {
+                return i;
+            }
+        }
+        return i;
+    }
+    // --------- /JavaScript --------- //
+
+    // --------- CSS --------- //
+    String minifyCss(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        int n = s.length();
+        int i = 0;
+        boolean pendingSpace = false;
+        while (i < n) {
+            char c = s.charAt(i);
+            char next = (i + 1 < n) ? s.charAt(i + 1) : 0;
+            if (c == '/' && next == '*') {
+                int end = s.indexOf("*/", i + 2);
+                end = (end == -1) ? n : end + 2;
+                if (i + 2 < n && s.charAt(i + 2) == '!') {
+                    appendCssSpace(out, pendingSpace, '/');
+                    pendingSpace = false;
+                    out.append(s, i, end).append('\n');
+                } else {
+                    pendingSpace = true;
+                }
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+            } else {
+                appendCssSpace(out, pendingSpace, c);
+                pendingSpace = false;
+                if (c == '\'' || c == '"') {
+                    i = copyQuoted(s, i, out, true);
+                } else {
+                    // the last declaration of a block does not need its ";"
+                    if (c == '}' && out.length() > 0 && out.charAt(out.length() - 1) == ';') {
+                        out.setLength(out.length() - 1);
+                    }
+                    out.append(c);
+                    i++;
+                }
+            }
+        }
+        return trimEnd(out).toString();
+    }
+
+    static private void appendCssSpace(StringBuilder out, boolean pendingSpace, char nextChar) {
+        if (pendingSpace && out.length() > 0) {
+            char last = out.charAt(out.length() - 1);
+            if (CSS_SEPARATOR_CHARS.indexOf(last) == -1 && CSS_SEPARATOR_CHARS.indexOf(nextChar) == -1 && last != ':'
+                                    && last != '(' && last != '\n' && nextChar != ')') {
+                out.append(' ');
+            }
+        }
+    }
+    // --------- /CSS --------- //
+
+    // --------- Utils --------- //
+    /**
+     * Copy the quoted string starting at i (including the quotes) and return the index after it.
+     */
+    static private int copyQuoted(String s, int i, StringBuilder out, boolean stopAtNewLine) {
+        int n = s.length();
+        char quote = s.charAt(i);
+        out.append(quote);
+        i++;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '\n' && stopAtNewLine) {
+                return i;
+            }
+            out.append(c);
+            i++;
+            if (c == '\\' && i < n) {
+                out.append(s.charAt(i++));
+            } else if (c == quote) {
+                return i;
+            }
+        }
+        return i;
+    }
+
+    static private void appendSpace(StringBuilder out) {
+        int len = out.length();
+        if (len > 0) {
+            char last = out.charAt(len - 1);
+            if (last != ' ' && last != '\n') {
+                out.append(' ');
+            }
+        }
+    }
+
+    static private void appendNewLine(StringBuilder out) {
+        trimEnd(out);
+        if (out.length() > 0 && out.charAt(out.length() - 1) != '\n') {
+            out.append('\n');
+        }
+    }
+
+    static private StringBuilder trimEnd(StringBuilder out) {
+        int len = out.length();
+        while (len > 0 && out.charAt(len - 1) == ' ') {
+            len--;
+        }
+        out.setLength(len);
+        return out;
+    }
+    // --------- /Utils --------- //
+}
@@ -0,0 +1,19 @@
+package org.snowfk.web.renderer;
+
+import java.io.Writer;
+
+/**
+ * Render the json response data (the WebActionResponse, or the "_jsonData" / model of the web models).<br />
+ * <br />
+ *
+ * The default implementation is the StreamingJsonRenderer. To use another renderer (e.g., the json-lib based
+ * DefaultJsonRenderer), add the following in the <em>configure()</em> of the application module:
+ *
+ * <pre>
+ * bind(JsonRenderer.class).to(DefaultJsonRenderer.class)
+ * </pre>
+ */
+public interface JsonRenderer {
+
+    public void render(Object data, Writer out);
+}
@@ -0,0 +1,414 @@
+package org.snowfk.web.renderer;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONString;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+/**
+ * JsonRenderer that writes the json tokens while walking the object graph (no json object tree is built).<br />
+ * <br />
+ *
+ * The first snow.jsonBufferSize chars (default 8192, about the container response buffer) are held back until they
+ * are full, and then the tokens are written straight to the Writer. So, a failure (e.g., a getter that throws) in a
+ * small response leaves nothing written, and the request still ends with a proper error, while a failure in a bigger
+ * response leaves a truncated json (as a failure while rendering a template does), without holding the whole document
+ * in memory.<br />
+ * <br />
+ *
+ * The output is the same as the json-lib DefaultJsonRenderer:
+ * <ul>
+ * <li>"stackTrace" (as well as "class", "declaringClass", and "metaClass") is excluded from the beans and maps.</li>
+ * <li>The bean properties are sorted by name, and their null values are written as their type default ("" for
+ * strings, 0 for numbers, false for booleans, [] for arrays and collections, null otherwise).</li>
+ * <li>Cycles are handled as the json-lib LENIENT strategy: a reference to an object being written is written as null
+ * (or [] for an array or collection).</li>
+ * </ul>
+ * Except that the strings are always written as json strings (json-lib writes the "null" and "function(...)" strings
+ * as is), the non-finite numbers are written as null (json-lib fails), and the top level strings, numbers, and
+ * booleans are written as such.
+ */
+public class StreamingJsonRenderer implements JsonRenderer {
+
+    static private final Set<String> excludes = new HashSet<String>(Arrays.asList("stackTrace", "class",
+                                                                      "declaringClass", "metaClass"));
+
+    static private final char[]      HEX      = "0123456789abcdef".toCharArray();
+
+    static private Logger            logger   = LoggerFactory.getLogger(StreamingJsonRenderer.class);
+
+    // bean class -> its json properties (readable, not excluded, sorted by name)
+    private final ConcurrentMap<Class<?>, PropertyDescriptor[]> beanPropertiesByClass = new ConcurrentHashMap<Class<?>, PropertyDescriptor[]>();
+
+    // will be injected from .properties file
+    private int                      bufferSize = 8192;
+
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectJsonBufferSize(@Named("snow.jsonBufferSize") String size) {
+        try {
+            bufferSize = Integer.parseInt(size.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.jsonBufferSize property : " + size + ".  Will default to " + bufferSize);
+        }
+    }
+    // --------- /Injects --------- //
+
+    @Override
+    public void render(Object data, Writer out) {
+        try {
+            if (data == null) {
+                out.write("{}");
+            } else {
+                HeadBufferWriter headWriter = new HeadBufferWriter(out, bufferSize);
+                writeValue(data, headWriter, new IdentityHashMap<Object, Object>());
+                headWriter.flushHead();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // --------- Writers --------- //
+    /**
+     * @param ancestors
+     *            the maps, collections, arrays, and beans being written (to detect the cycles)
+     */
+    private void writeValue(Object value, Writer out, IdentityHashMap<Object, Object> ancestors) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof String || value instanceof Character) {
+            writeString(value.toString(), out);
+        } else if (value instanceof Number) {
+            writeNumber((Number) value, out);
+        } else if (value instanceof Boolean) {
+            out.write(value.toString());
+        } else if (value instanceof Enum) {
+            writeString(((Enum<?>) value).name(), out);
+        } else if (value instanceof JSONString) {
+            out.write(((JSONString) value).toJSONString());
+        } else if (value instanceof JSON) {
+            out.write(value.toString());
+        } else if (value instanceof Map || value instanceof Collection || value.getClass().isArray()) {
+            if (ancestors.containsKey(value)) {
+                // LENIENT cycle
+                out.write((value instanceof Map) ? "null" : "[]");
+                return;
+            }
+            ancestors.put(value, value);
+            if (value instanceof Map) {
+                writeMap((Map<?, ?>) value, out, ancestors);
+            } else if (value instanceof Collection) {
+                writeCollection((Collection<?>) value, out, ancestors);
+            } else {
+                writeArray(value, out, ancestors);
+            }
+            ancestors.remove(value);
+        } else {
+            if (ancestors.containsKey(value)) {
+                out.write("null");
+                return;
+            }
+            ancestors.put(value, value);
+            writeBean(value, out, ancestors);
+            ancestors.remove(value);
+        }
+    }
+
+    private void writeMap(Map<?, ?> map, Writer out, IdentityHashMap<Object, Object> ancestors) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String name = String.valueOf(entry.getKey());
+            if (excludes.contains(name)) {
+                continue;
+            }
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            writeString(name, out);
+            out.write(':');
+            writeValue(entry.getValue(), out, ancestors);
+        }
+        out.write('}');
+    }
+
+    private void writeCollection(Collection<?> collection, Writer out, IdentityHashMap<Object, Object> ancestors)
+                            throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Object item : collection) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            writeValue(item, out, ancestors);
+        }
+        out.write(']');
+    }
+
+    private void writeArray(Object array, Writer out, IdentityHashMap<Object, Object> ancestors) throws IOException {
+        out.write('[');
+        int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeValue(Array.get(array, i), out, ancestors);
+        }
+        out.write(']');
+    }
+
+    private void writeBean(Object bean, Writer out, IdentityHashMap<Object, Object> ancestors) throws IOException {
+        out.write('{');
+        boolean first = true;
+        for (PropertyDescriptor property : getBeanProperties(bean.getClass())) {
+            Object value;
+            try {
+                value = property.getReadMethod().invoke(bean);
+            } catch (Exception e) {
+                throw new RuntimeException("Cannot get the json property " + property.getName() + " of "
+                                        + bean.getClass().getName(), e);
+            }
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            writeString(property.getName(), out);
+            out.write(':');
+            if (value == null) {
+                writeDefaultValue(property.getPropertyType(), out);
+            } else {
+                writeValue(value, out, ancestors);
+            }
+        }
+        out.write('}');
+    }
+
+    // same as the json-lib DefaultDefaultValueProcessor
+    static private void writeDefaultValue(Class<?> type, Writer out) throws IOException {
+        if (type == null) {
+            out.write("null");
+        } else if (type.isArray() || Collection.class.isAssignableFrom(type)) {
+            out.write("[]");
+        } else if (Number.class.isAssignableFrom(type)) {
+            out.write('0');
+        } else if (type == Boolean.class) {
+            out.write("false");
+        } else if (type == String.class || type == Character.class) {
+            out.write("\"\"");
+        } else {
+            out.write("null");
+        }
+    }
+
+    static private void writeNumber(Number number, Writer out) throws IOException {
+        if ((number instanceof Double && (((Double) number).isNaN() || ((Double) number).isInfinite()))
+                                || (number instanceof Float && (((Float) number).isNaN() || ((Float) number).isInfinite()))) {
+            out.write("null");
+            return;
+        }
+        String s = number.toString();
+        // as json-lib, remove the trailing zeros of the decimals (e.g., 1.0 -> 1, 1.50 -> 1.5)
+        if (s.indexOf('.') > 0 && s.indexOf('e') < 0 && s.indexOf('E') < 0) {
+            int end = s.length();
+            while (s.charAt(end - 1) == '0') {
+                end--;
+            }
+            if (s.charAt(end - 1) == '.') {
+                end--;
+            }
+            s = s.substring(0, end);
+        }
+        out.write(s);
+    }
+
+    /**
+     * Write the quoted and escaped string (same escaping as json-lib, including "&lt;/" as "&lt;\/").
+     */
+    static private void writeString(String s, Writer out) throws IOException {
+        out.write('"');
+        int length = s.length();
+        int start = 0;
+        char prev = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            String escaped = null;
+            switch (c) {
+                case '"':
+                    escaped = "\\\"";
+                    break;
+                case '\\':
+                    escaped = "\\\\";
+                    break;
+                case '/':
+                    if (prev == '<') {
+                        escaped = "\\/";
+                    }
+                    break;
+                case '\b':
+                    escaped = "\\b";
+                    break;
+                case '\t':
+                    escaped = "\\t";
+                    break;
+                case '\n':
+                    escaped = "\\n";
+                    break;
+                case '\f':
+                    escaped = "\\f";
+                    break;
+                case '\r':
+                    escaped = "\\r";
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                        escaped = new String(new char[] { '\\', 'u', HEX[(c >> 12) & 0xF], HEX[(c >> 8) & 0xF],
+                                HEX[(c >> 4) & 0xF], HEX[c & 0xF] });
+                    }
+            }
+            if (escaped != null) {
+                if (i > start) {
+                    out.write(s, start, i - start);
+                }
+                out.write(escaped);
+                start = i + 1;
+            }
+            prev = c;
+        }
+        if (length > start) {
+            out.write(s, start, length - start);
+        }
+        out.write('"');
+    }
+    // --------- /Writers --------- //
+
+    private PropertyDescriptor[] getBeanProperties(Class<?> cls) {
+        PropertyDescriptor[] properties = beanPropertiesByClass.get(cls);
+        if (properties == null) {
+            BeanInfo beanInfo;
+            try {
+                beanInfo = Introspector.getBeanInfo(cls);
+            } catch (IntrospectionException e) {
+                throw new RuntimeException("Cannot introspect " + cls.getName() + " for json", e);
+            }
+            List<PropertyDescriptor> propertyList = new ArrayList<PropertyDescriptor>();
+            for (PropertyDescriptor property : beanInfo.getPropertyDescriptors()) {
+                Method readMethod = property.getReadMethod();
+                if (readMethod != null && !excludes.contains(property.getName())) {
+                    // e.g., public getter of a non public class
+                    try {
+                        readMethod.setAccessible(true);
+                    } catch (SecurityException e) {
+                        // will fail on invoke if really not accessible
+                    }
+                    propertyList.add(property);
+                }
+            }
+            properties = propertyList.toArray(new PropertyDescriptor[propertyList.size()]);
+            Arrays.sort(properties, new Comparator<PropertyDescriptor>() {
+                @Override
+                public int compare(PropertyDescriptor p1, PropertyDescriptor p2) {
+                    return p1.getName().compareTo(p2.getName());
+                }
+            });
+            beanPropertiesByClass.put(cls, properties);
+        }
+        return properties;
+    }
+
+    /**
+     * Hold the first chars until the buffer is full (or flushHead), and then write straight to the Writer.
+     */
+    static private class HeadBufferWriter extends Writer {
+        private final Writer out;
+        private char[]       head;
+        private int          length = 0;
+
+        HeadBufferWriter(Writer out, int bufferSize) {
+            this.out = out;
+            this.head = (bufferSize > 0) ? new char[bufferSize] : null;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (head != null && length < head.length) {
+                head[length++] = (char) c;
+            } else {
+                flushHead();
+                out.write(c);
+            }
+        }
+
+        @Override
+        public void write(String str) throws IOException {
+            write(str, 0, str.length());
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (head != null && length + len <= head.length) {
+                str.getChars(off, off + len, head, length);
+                length += len;
+            } else {
+                flushHead();
+                out.write(str, off, len);
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (head != null && length + len <= head.length) {
+                System.arraycopy(cbuf, off, head, length, len);
+                length += len;
+            } else {
+                flushHead();
+                out.write(cbuf, off, len);
+            }
+        }
+
+        // write the held chars (if any), and then write straight to the Writer
+        void flushHead() throws IOException {
+            if (head != null) {
+                out.write(head, 0, length);
+                head = null;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushHead();
+        }
+    }
+
+}
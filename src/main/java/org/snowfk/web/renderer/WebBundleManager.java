@@ -1,62 +1,345 @@
 package org.snowfk.web.renderer;
 
 import java.io.File;
-import java.util.Arrays;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import javax.inject.Inject;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowfk.util.ContentUtil;
 import org.snowfk.util.FileUtil;
+import org.snowfk.web.StaticAsset;
 import org.snowfk.web.names.WebAppFolder;
 
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 
 @Singleton
 public class WebBundleManager {
-    
+    static private Logger       logger                        = LoggerFactory.getLogger(WebBundleManager.class);
+
     public static final String  WEB_BUNDLE_ALL_PREFIX         = "_web_bundle_all";
-    
+
+    // [folderPath][_web_bundle_all][__key__][.js|.css]
+    static private final Pattern WEB_BUNDLE_PATTERN           = Pattern.compile("(.*?)" + WEB_BUNDLE_ALL_PREFIX
+                                                                                      + "(?:__(.+)__)?(\\.js|\\.css)",
+                                                                                      Pattern.CASE_INSENSITIVE);
+
     @Inject
     private @WebAppFolder File webAppFolder;
-    
-    
-    public boolean isWebBundle(String resourcePath){
-        boolean r = false;
+    @Inject
+    private WebBundleMinifier  webBundleMinifier;
 
-        String[] priPathAndExt = FileUtil.getFileNameAndExtension(resourcePath);
+    // will be injected from .properties file (ms between two checks of the bundle files, 0 for every access)
+    private long               checkInterval                  = 1000;
+    // will be injected from .properties file (off by default, so that the bundles are the files as is)
+    private boolean            minify                         = false;
+    // will be injected from .properties file (write the _web_bundle_all__[fingerprint]__ files in the bundle folders)
+    private boolean            writeFiles                     = false;
 
-        if (priPathAndExt[0].endsWith(WEB_BUNDLE_ALL_PREFIX) && (priPathAndExt[1].equalsIgnoreCase(".js") || priPathAndExt[1].equalsIgnoreCase(".css"))) {
-            r = true;
+    // folderPath + ext (e.g., "/js/.js") -> assembled bundle (also the fingerprint registry)
+    private ConcurrentMap<String, CachedWebBundle> webBundleCache = new ConcurrentHashMap<String, CachedWebBundle>();
+
+    // refreshes the cached bundles in the background (null if not started, or if snow.webBundleCheckInterval is 0)
+    private volatile ScheduledExecutorService refresher;
+
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectWebBundleCheckInterval(@Named("snow.webBundleCheckInterval") String interval) {
+        try {
+            checkInterval = Long.parseLong(interval.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.webBundleCheckInterval property : " + interval + ".  Will default to " + checkInterval);
         }
-        return r;        
     }
-    
+
+    @Inject(optional = true)
+    public void injectWebBundleMinify(@Named("snow.webBundleMinify") String minify) {
+        this.minify = "true".equalsIgnoreCase(minify.trim());
+    }
+
+    @Inject(optional = true)
+    public void injectWebBundleWriteFiles(@Named("snow.webBundleWriteFiles") String writeFiles) {
+        this.writeFiles = "true".equalsIgnoreCase(writeFiles.trim());
+    }
+    // --------- /Injects --------- //
+
+    public boolean isWebBundle(String resourcePath){
+        return WEB_BUNDLE_PATTERN.matcher(resourcePath).matches();
+    }
+
+    /**
+     * @return true if this web bundle path has a __key__ (whatever its value)
+     */
+    public boolean isFingerprinted(String resourcePath){
+        Matcher matcher = WEB_BUNDLE_PATTERN.matcher(resourcePath);
+        return matcher.matches() && matcher.group(2) != null;
+    }
+
+    /**
+     * @return true if the __key__ of this web bundle path is the current fingerprint of this web bundle (as generated
+     *         by the WebBundleDirective), and therefore the content can be cached forever by the client. A stale or
+     *         custom key is not.
+     */
+    public boolean isCurrentFingerprint(String resourcePath, StaticAsset webBundle){
+        Matcher matcher = WEB_BUNDLE_PATTERN.matcher(resourcePath);
+        return matcher.matches() && matcher.group(2) != null && matcher.group(2).equals(getFingerprint(webBundle));
+    }
+
     public String getContent(String resourcePath){
-        
-        String ext = FileUtil.getFileNameAndExtension(resourcePath)[1];
-        File resourceFolder = new File(webAppFolder,resourcePath).getParentFile();
-        
-        List<File> files = getWebBundleFiles(resourceFolder,ext);
-        
-        StringBuilder contentSB = new StringBuilder();
-        for (File file : files) {
-            contentSB.append(FileUtil.getFileContentAsString(file));
-            contentSB.append("\n");
+        StaticAsset webBundle = getWebBundle(resourcePath);
+        if (webBundle == null){
+            return null;
+        }
+        try {
+            return new String(webBundle.getContent(), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Return the assembled web bundle (content, gzip variant, ETag, and last modified) for this web bundle path. The
+     * bundle is assembled once, and re-assembled when its file set or one of its files change (see
+     * snow.webBundleCheckInterval).
+     *
+     * @param resourcePath
+     *            (e.g., "/js/_web_bundle_all.js" or "/js/_web_bundle_all__123__.js")
+     * @return the bundle, or null if this is not a web bundle path or the folder does not exist
+     */
+    public StaticAsset getWebBundle(String resourcePath){
+        Matcher matcher = WEB_BUNDLE_PATTERN.matcher(resourcePath);
+        if (!matcher.matches()){
+            return null;
+        }
+        return getWebBundle(matcher.group(1), matcher.group(3));
+    }
+
+    /**
+     * Return the content hash fingerprint of the web bundle of this folder and extension (used by the
+     * WebBundleDirective as the bundle url __key__). Once the bundle is registered (first call), this does not access
+     * the file system (the bundles are refreshed in the background, see snow.webBundleCheckInterval).
+     *
+     * @param folderPath
+     *            (e.g., "/js/")
+     * @param fileExt
+     *            (e.g., ".js")
+     * @return the fingerprint, or null if the folder does not exist
+     */
+    public String getFingerprint(String folderPath, String fileExt){
+        StaticAsset webBundle = getWebBundle(folderPath, fileExt);
+        return (webBundle != null) ? getFingerprint(webBundle) : null;
+    }
+
+    private StaticAsset getWebBundle(String folderPath, String fileExt){
+        String ext = fileExt.toLowerCase();
+        String cacheKey = folderPath + ext;
+
+        CachedWebBundle cachedBundle = webBundleCache.get(cacheKey);
+        // when the refresher runs, the cached bundles are always up to date
+        if (cachedBundle != null && (refresher != null || System.currentTimeMillis() - cachedBundle.checkedAt < checkInterval)){
+            return cachedBundle.webBundle;
+        }
+        return refreshWebBundle(folderPath, ext, cachedBundle);
+    }
+
+    /**
+     * Check (and re-assemble if needed) the web bundle.
+     *
+     * @return the up to date web bundle, or null if the folder does not exist anymore
+     */
+    private StaticAsset refreshWebBundle(String folderPath, String ext, CachedWebBundle cachedBundle){
+        String cacheKey = folderPath + ext;
+        long now = System.currentTimeMillis();
+
+        File folder = new File(webAppFolder, folderPath);
+        if (!folder.isDirectory()){
+            webBundleCache.remove(cacheKey);
+            return null;
+        }
+
+        List<File> files = getWebBundleFiles(folder, ext);
+        String signature = getSignature(files);
+        if (cachedBundle != null && cachedBundle.signature.equals(signature)){
+            cachedBundle.checkedAt = now;
+            return cachedBundle.webBundle;
+        }
+
+        StaticAsset webBundle = buildWebBundle(folderPath + WEB_BUNDLE_ALL_PREFIX + ext, folder, files, ext);
+        webBundleCache.put(cacheKey, new CachedWebBundle(folderPath, ext, webBundle, signature, now));
+        if (writeFiles){
+            writeWebBundleFile(folder, ext, webBundle);
         }
-        
-        String content = contentSB.toString();
-        return content;        
-        
+        return webBundle;
     }
-    
-    
+
+    // --------- Refresher --------- //
+    /**
+     * Start the background refresher of the registered web bundles (every snow.webBundleCheckInterval ms). If the
+     * interval is 0, the bundles are checked on every access instead.
+     */
+    public void init(){
+        if (checkInterval > 0 && refresher == null){
+            refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "snow-webbundle-refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            refresher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    refreshWebBundles();
+                }
+            }, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void shutdown(){
+        if (refresher != null){
+            refresher.shutdown();
+            refresher = null;
+        }
+    }
+
+    void refreshWebBundles(){
+        for (CachedWebBundle cachedBundle : webBundleCache.values()){
+            try {
+                refreshWebBundle(cachedBundle.folderPath, cachedBundle.ext, cachedBundle);
+            } catch (Throwable t) {
+                logger.error("Cannot refresh web bundle " + cachedBundle.folderPath + cachedBundle.ext + ": " + t.getMessage());
+            }
+        }
+    }
+    // --------- /Refresher --------- //
+
     public List<File> getWebBundleFiles(File folder, String fileExt){
-        List<File> files = null;
+        List<File> files = new ArrayList<File>();
         File[] allFiles = FileUtil.getFiles(folder, fileExt);
 
         //TODO: look at the "all.bundle" file for custom inclusion/ordering
-        files = Arrays.asList(allFiles);
+        for (File file : allFiles){
+            // skip the bundle files written by snow.webBundleWriteFiles
+            if (!isWebBundle(file.getName())){
+                files.add(file);
+            }
+        }
+
+        return files;
+    }
+
+    private StaticAsset buildWebBundle(String bundlePath, File folder, List<File> files, String ext){
+        StringBuilder contentSB = new StringBuilder();
+        long lastModified = 0;
+        for (File file : files) {
+            contentSB.append(minify(FileUtil.getFileContentAsString(file), ext, file));
+            contentSB.append("\n");
+            lastModified = Math.max(lastModified, file.lastModified());
+        }
+
+        byte[] content;
+        try {
+            content = contentSB.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] gzipContent = ContentUtil.gzip(content);
+        if (gzipContent.length >= content.length){
+            gzipContent = null;
+        }
+        String etag = new StringBuilder("\"").append(ContentUtil.md5Hex(content)).append('"').toString();
+
+        return new StaticAsset(bundlePath, folder, content, gzipContent, null, etag, lastModified);
+    }
+
+    private String minify(String content, String ext, File file){
+        if (!minify || content == null){
+            return content;
+        }
+        try {
+            return webBundleMinifier.minify(content, ext);
+        } catch (RuntimeException e) {
+            logger.warn("Cannot minify " + file.getAbsolutePath() + " (will use it as is): " + e.getMessage());
+            return content;
+        }
+    }
+
+    /**
+     * Write the bundle as "_web_bundle_all__[fingerprint]__.ext" in its folder (so that a packaged war can ship it, or
+     * a front web server can serve it), and delete the previous versions.
+     */
+    private void writeWebBundleFile(File folder, String ext, StaticAsset webBundle){
+        String fileName = new StringBuilder(WEB_BUNDLE_ALL_PREFIX).append("__").append(getFingerprint(webBundle))
+                                .append("__").append(ext).toString();
+        for (File file : FileUtil.getFiles(folder, ext)){
+            if (isFingerprinted(file.getName()) && !file.getName().equals(fileName)){
+                file.delete();
+            }
+        }
+        File bundleFile = new File(folder, fileName);
+        if (bundleFile.exists()){
+            return;
+        }
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(bundleFile);
+            out.write(webBundle.getContent());
+        } catch (IOException e) {
+            logger.error("Cannot write web bundle file " + bundleFile.getAbsolutePath() + ": " + e.getMessage());
+        } finally {
+            if (out != null){
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    logger.error(e.getMessage());
+                }
+            }
+        }
+    }
+
+    // the names, lengths, and last modified times of the files (changes if a file is added, removed, or modified)
+    static private String getSignature(List<File> files){
+        StringBuilder sb = new StringBuilder();
+        for (File file : files){
+            sb.append(file.getName()).append(':').append(file.length()).append(':').append(file.lastModified()).append(';');
+        }
+        return sb.toString();
+    }
 
-        return files;        
-    }    
+    // the etag is the quoted content hash
+    static private String getFingerprint(StaticAsset webBundle){
+        String etag = webBundle.getEtag();
+        return etag.substring(1, etag.length() - 1);
+    }
+
+    static private class CachedWebBundle {
+        final String      folderPath;
+        final String      ext;
+        final StaticAsset webBundle;
+        final String      signature;
+        volatile long     checkedAt;
+
+        CachedWebBundle(String folderPath, String ext, StaticAsset webBundle, String signature, long checkedAt){
+            this.folderPath = folderPath;
+            this.ext = ext;
+            this.webBundle = webBundle;
+            this.signature = signature;
+            this.checkedAt = checkedAt;
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package org.snowfk.web.renderer;
+
+/**
+ * Minify the content of the web bundle files (called by the WebBundleManager once per file, each time a bundle is
+ * re-assembled, if snow.webBundleMinify=true, default false).<br />
+ * <br />
+ *
+ * The default implementation is the DefaultWebBundleMinifier (comment and whitespace stripping). To use another
+ * minifier, add the following in the <em>configure()</em> of the application module:
+ *
+ * <pre>
+ * bind(WebBundleMinifier.class).to(MyWebBundleMinifier.class)
+ * </pre>
+ */
+public interface WebBundleMinifier {
+
+    /**
+     * @param content
+     *            the content of the file
+     * @param fileExt
+     *            the file extension (".js" or ".css")
+     * @return the minified content
+     */
+    public String minify(String content, String fileExt);
+}
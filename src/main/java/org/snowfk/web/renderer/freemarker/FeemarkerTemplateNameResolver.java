@@ -4,21 +4,83 @@ import java.io.File;
 
 import javax.inject.Singleton;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowfk.util.LruCache;
 import org.snowfk.web.names.WebAppFolder;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 
 
+/**
+ * Resolve the resource paths to their Freemarker template names.<br />
+ * <br />
+ * 
+ * The resolutions, found or not found, are cached (snow.templateNameCacheSize entries, default 10000, 0 to disable), and
+ * re-checked on the file system at most once every snow.templateNameCheckInterval ms (default 2000, 0 to always
+ * check).
+ */
 @Singleton
 public class FeemarkerTemplateNameResolver {
+    static private Logger logger = LoggerFactory.getLogger(FeemarkerTemplateNameResolver.class);
 
     @Inject
     private @WebAppFolder File webAppFolder;
     
+    // will be injected from .properties file
+    private long checkInterval = 2000;
+    
+    // resourcePath -> resolution (LRU bounded, so that the requests on random paths cannot grow it forever)
+    private LruCache<String, Resolution> resolutionCache = new LruCache<String, Resolution>(10000);
+    
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectTemplateNameCacheSize(@Named("snow.templateNameCacheSize") String size) {
+        try {
+            int cacheSize = Integer.parseInt(size.trim());
+            resolutionCache = (cacheSize > 0) ? new LruCache<String, Resolution>(cacheSize) : null;
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.templateNameCacheSize property : " + size + ".  Will default to " + resolutionCache.getMaxWeight());
+        }
+    }
+    
+    @Inject(optional = true)
+    public void injectTemplateNameCheckInterval(@Named("snow.templateNameCheckInterval") String interval) {
+        try {
+            checkInterval = Long.parseLong(interval.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.templateNameCheckInterval property : " + interval + ".  Will default to " + checkInterval);
+        }
+    }
+    // --------- /Injects --------- //
     
     // resourcePath needs to be relative to WebAppFolder
     public String resolve(String resourcePath){
+        LruCache<String, Resolution> cache = resolutionCache;
+        if (cache == null || checkInterval <= 0){
+            return doResolve(resourcePath);
+        }
+        
+        long now = System.currentTimeMillis();
+        Resolution resolution = cache.get(resourcePath);
+        if (resolution == null || now - resolution.checkedAt >= checkInterval){
+            resolution = cache.put(resourcePath, new Resolution(doResolve(resourcePath), now));
+        }
+        return resolution.templateName;
+    }
+    
+    /**
+     * Forget all the cached resolutions (e.g., after a deployment of new templates).
+     */
+    public void clear(){
+        if (resolutionCache != null){
+            resolutionCache.clear();
+        }
+    }
+    
+    private String doResolve(String resourcePath){
         if (resourcePath.endsWith("/")){
             resourcePath += "index";
         }
@@ -27,7 +89,10 @@ public class FeemarkerTemplateNameResolver {
         return getTemplateName(resourceFile);
     }
     
-    private String getTemplateName(File resourceFile){
+    /**
+     * @return the Freemarker template name of this .ftl file, or null if it does not exist
+     */
+    public String getTemplateName(File resourceFile){
         if (resourceFile.exists()){
             String resourcePath = resourceFile.getAbsolutePath();
             //SystemOutUtil.printValue("FreemarkerPartProcessor.processPart resourcePath", resourcePath);
@@ -42,4 +107,15 @@ public class FeemarkerTemplateNameResolver {
             return null;
         }        
     }    
+    
+    // templateName is null when the template does not exist (negative cache)
+    static private class Resolution {
+        final String templateName;
+        final long   checkedAt;
+        
+        Resolution(String templateName, long checkedAt){
+            this.templateName = templateName;
+            this.checkedAt = checkedAt;
+        }
+    }
 }
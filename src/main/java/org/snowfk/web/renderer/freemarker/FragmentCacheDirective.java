@@ -0,0 +1,174 @@
+package org.snowfk.web.renderer.freemarker;
+
+import static org.snowfk.web.renderer.freemarker.FreemarkerUtil.getDataModel;
+import static org.snowfk.web.renderer.freemarker.FreemarkerUtil.getParam;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snowfk.SnowRuntimeException;
+import org.snowfk.util.LruCache;
+import org.snowfk.web.RequestContext;
+import org.snowfk.web.auth.Auth;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateNumberModel;
+
+/**
+ * Cache the rendered content of its body.<br />
+ * <br />
+ * 
+ * <pre>
+ * [@cache key="nav" ttl=60 varyByAuth=true varyByParam="lang"]...[/@cache]
+ * </pre>
+ * 
+ * <ul>
+ * <li>key: (required) the fragment key, scoped by template (the same key in two templates is two fragments)</li>
+ * <li>ttl: seconds before the fragment is rendered again (default snow.fragmentCacheTtl, 60)</li>
+ * <li>varyByAuth: if true, one fragment per Auth type (visitor when not authenticated)</li>
+ * <li>varyByParam: one fragment per value of this request param (comma separated for more than one)</li>
+ * <li>vary: one fragment per value of this expression (e.g., vary=m.contact.id)</li>
+ * </ul>
+ * 
+ * The cache holds at most snow.fragmentCacheSize fragments (default 1000, 0 to disable), the least recently used being
+ * evicted first.
+ */
+@Singleton
+public class FragmentCacheDirective implements TemplateDirectiveModel {
+    static private Logger logger = LoggerFactory.getLogger(FragmentCacheDirective.class);
+
+    public enum Alert {
+        NO_FRAGMENT_CACHE_KEY;
+    }
+
+    // will be injected from .properties file
+    private long                          defaultTtl    = 60;
+
+    private LruCache<String, Fragment>    fragmentCache = new LruCache<String, Fragment>(1000);
+
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectFragmentCacheSize(@Named("snow.fragmentCacheSize") String size) {
+        try {
+            int cacheSize = Integer.parseInt(size.trim());
+            fragmentCache = (cacheSize > 0) ? new LruCache<String, Fragment>(cacheSize) : null;
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.fragmentCacheSize property : " + size + ".  Will default to " + fragmentCache.getMaxWeight());
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectFragmentCacheTtl(@Named("snow.fragmentCacheTtl") String ttl) {
+        try {
+            defaultTtl = Long.parseLong(ttl.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.fragmentCacheTtl property : " + ttl + ".  Will default to " + defaultTtl);
+        }
+    }
+    // --------- /Injects --------- //
+
+    @Override
+    public void execute(Environment env, Map args, TemplateModel[] loopVars, TemplateDirectiveBody body)
+                            throws TemplateException, IOException {
+        if (body == null) {
+            return;
+        }
+
+        LruCache<String, Fragment> cache = fragmentCache;
+        if (cache == null) {
+            body.render(env.getOut());
+            return;
+        }
+
+        String key = getParam(args, "key", String.class);
+        if (key == null) {
+            throw new SnowRuntimeException(Alert.NO_FRAGMENT_CACHE_KEY, "template", env.getTemplate().getName());
+        }
+
+        String cacheKey = buildCacheKey(env.getTemplate().getName(), key, args);
+        long now = System.currentTimeMillis();
+
+        Fragment fragment = cache.get(cacheKey);
+        if (fragment == null || fragment.expiresAt <= now) {
+            StringWriter sw = new StringWriter();
+            body.render(sw);
+            long ttl = getTtl(args.get("ttl"));
+            fragment = new Fragment(sw.toString(), now + ttl * 1000);
+            if (ttl > 0) {
+                cache.put(cacheKey, fragment);
+            }
+        }
+        env.getOut().write(fragment.content);
+    }
+
+    public void clear() {
+        if (fragmentCache != null) {
+            fragmentCache.clear();
+        }
+    }
+
+    private String buildCacheKey(String templateName, String key, Map args) {
+        StringBuilder sb = new StringBuilder(templateName).append('|').append(key);
+
+        Boolean varyByAuth = getParam(args, "varyByAuth", Boolean.class);
+        String varyByParam = getParam(args, "varyByParam", String.class);
+        RequestContext rc = (Boolean.TRUE.equals(varyByAuth) || varyByParam != null) ? getDataModel("r.rc",
+                                RequestContext.class) : null;
+
+        if (Boolean.TRUE.equals(varyByAuth)) {
+            Auth<?> auth = (rc != null) ? rc.getAuth() : null;
+            sb.append("|auth=").append((auth != null && auth.getType() != null) ? auth.getType().name()
+                                    : Auth.Type.visitor.name());
+        }
+        if (varyByParam != null) {
+            for (String paramName : varyByParam.split(",")) {
+                paramName = paramName.trim();
+                sb.append('|').append(paramName).append('=');
+                if (rc != null) {
+                    sb.append(rc.getParam(paramName));
+                }
+            }
+        }
+        Object vary = args.get("vary");
+        if (vary != null) {
+            Object varyValue = getParam(vary, Object.class);
+            sb.append("|vary=").append((varyValue != null) ? varyValue : vary);
+        }
+        return sb.toString();
+    }
+
+    private long getTtl(Object ttlModel) throws TemplateModelException {
+        if (ttlModel instanceof TemplateNumberModel) {
+            return ((TemplateNumberModel) ttlModel).getAsNumber().longValue();
+        } else if (ttlModel != null) {
+            try {
+                return Long.parseLong(ttlModel.toString().trim());
+            } catch (NumberFormatException e) {
+                logger.warn("invalid [@cache] ttl : " + ttlModel + ".  Will default to " + defaultTtl);
+            }
+        }
+        return defaultTtl;
+    }
+
+    static private class Fragment {
+        final String content;
+        final long   expiresAt;
+
+        Fragment(String content, long expiresAt) {
+            this.content = content;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
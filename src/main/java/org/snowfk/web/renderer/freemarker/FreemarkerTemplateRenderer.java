@@ -3,18 +3,30 @@ package org.snowfk.web.renderer.freemarker;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.inject.Singleton;
 import javax.servlet.ServletContext;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snowfk.SnowRuntimeException;
 import org.snowfk.web.names.WebAppFolder;
 import org.snowfk.web.renderer.TemplateRenderer;
 
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 
 import freemarker.cache.FileTemplateLoader;
 import freemarker.cache.MultiTemplateLoader;
@@ -24,11 +36,44 @@ import freemarker.ext.beans.BeansWrapper;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 
+/**
+ * The Freemarker TemplateRenderer.<br />
+ * <br />
+ *
+ * When snow.templateWarmup is set, all the .ftl files of the web app folder (including the frames) are parsed into the
+ * Freemarker cache at init, in parallel (snow.templateWarmupThreads, default to the number of processors), so that the
+ * first requests do not pay for the parsing:
+ * <ul>
+ * <li>"true": the warmup is done in the init, and a template syntax error fails the init.</li>
+ * <li>"async": the warmup is done in the background, and {@link #isReady()} becomes true when done (a syntax error is
+ * logged and the renderer never becomes ready, see {@link #getWarmupError()}).</li>
+ * </ul>
+ */
 @Singleton
 public class FreemarkerTemplateRenderer implements TemplateRenderer {
     static private Logger logger = LoggerFactory.getLogger(FreemarkerTemplateRenderer.class);
 
+    public enum Alert {
+        TEMPLATE_WARMUP_FAILED;
+    }
+
+    static private final String TEMPLATE_EXT = ".ftl";
+
+    private enum WarmupMode {
+        none, sync, async;
+    }
+
     private Configuration                        conf   = new Configuration();
+
+    // will be injected from .properties file
+    private WarmupMode                           warmupMode    = WarmupMode.none;
+    // will be injected from .properties file
+    private int                                  warmupThreads = Runtime.getRuntime().availableProcessors();
+
+    private volatile boolean                     ready         = true;
+    private volatile Throwable                   warmupError;
+    // templateName -> parse time in ms (populated by the warmup)
+    private Map<String, Long>                    warmupTimes   = new ConcurrentHashMap<String, Long>();
     
     @Inject(optional=true)
     private ServletContext servletContext;
@@ -52,7 +97,32 @@ public class FreemarkerTemplateRenderer implements TemplateRenderer {
     private ParseJsonTemplateMethod parseJsonTemplateMethod;
     @Inject
     private WebBundleDirective webBundleDirective;    
+    @Inject
+    private FragmentCacheDirective fragmentCacheDirective;
     
+    // --------- Injects --------- //
+    @Inject(optional = true)
+    public void injectTemplateWarmup(@Named("snow.templateWarmup") String warmup) {
+        warmup = warmup.trim();
+        if ("true".equalsIgnoreCase(warmup)) {
+            warmupMode = WarmupMode.sync;
+        } else if ("async".equalsIgnoreCase(warmup)) {
+            warmupMode = WarmupMode.async;
+        } else if (!"false".equalsIgnoreCase(warmup)) {
+            logger.warn("invalid snow.templateWarmup property : " + warmup + ".  Will default to false");
+        }
+    }
+
+    @Inject(optional = true)
+    public void injectTemplateWarmupThreads(@Named("snow.templateWarmupThreads") String threads) {
+        try {
+            warmupThreads = Integer.parseInt(threads.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("invalid snow.templateWarmupThreads property : " + threads + ".  Will default to " + warmupThreads);
+        }
+    }
+    // --------- /Injects --------- //
+
     public void init() {
         File rootFile = webAppFolder.getAbsoluteFile();
         while (rootFile.getParentFile() != null) {
@@ -108,6 +178,8 @@ public class FreemarkerTemplateRenderer implements TemplateRenderer {
         // TODO: this needs to be deprecated
         conf.setSharedVariable("webBundle",webBundleDirective);
 
+        conf.setSharedVariable("cache", fragmentCacheDirective);
+
         conf.setSharedVariable("max", maxTemplateMethod);
 
         conf.setSharedVariable("hrefPart", hrefPartTemplateMethod);
@@ -129,7 +201,116 @@ public class FreemarkerTemplateRenderer implements TemplateRenderer {
         }  
         */      
         
+        // --------- Warmup --------- //
+        if (warmupMode == WarmupMode.sync) {
+            warmup();
+        } else if (warmupMode == WarmupMode.async) {
+            ready = false;
+            Thread warmupThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        warmup();
+                    } catch (Throwable t) {
+                        // already logged by warmup
+                    }
+                }
+            }, "snow-template-warmup");
+            warmupThread.setDaemon(true);
+            warmupThread.start();
+        }
+        // --------- /Warmup --------- //
+    }
+
+    // --------- Warmup --------- //
+    /**
+     * Parse all the .ftl files of the web app folder into the Freemarker cache.
+     * 
+     * @throws SnowRuntimeException
+     *             (TEMPLATE_WARMUP_FAILED) on the first template that cannot be parsed (the remaining ones are
+     *             cancelled)
+     */
+    public void warmup() {
+        ready = false;
+        long start = System.currentTimeMillis();
+
+        List<File> templateFiles = new ArrayList<File>();
+        listTemplateFiles(webAppFolder, templateFiles);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(warmupThreads, templateFiles.size())));
+        try {
+            CompletionService<String> completionService = new ExecutorCompletionService<String>(executor);
+            for (File templateFile : templateFiles) {
+                final String templateName = templateNameResolver.getTemplateName(templateFile);
+                completionService.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        long templateStart = System.currentTimeMillis();
+                        conf.getTemplate(templateName);
+                        long time = System.currentTimeMillis() - templateStart;
+                        warmupTimes.put(templateName, time);
+                        logger.debug("Template warmup: " + templateName + " parsed in " + time + "ms");
+                        return templateName;
+                    }
+                });
+            }
+            for (int i = 0; i < templateFiles.size(); i++) {
+                try {
+                    completionService.take().get();
+                } catch (ExecutionException e) {
+                    throw e.getCause();
+                }
+            }
+        } catch (Throwable t) {
+            executor.shutdownNow();
+            warmupError = t;
+            logger.error("Template warmup failed because " + t.getMessage());
+            throw new SnowRuntimeException(Alert.TEMPLATE_WARMUP_FAILED, t, "webAppFolder", webAppFolder.getAbsolutePath());
+        } finally {
+            executor.shutdown();
+        }
+
+        logger.info("Template warmup: " + templateFiles.size() + " templates parsed in " + (System.currentTimeMillis() - start) + "ms");
+        ready = true;
+    }
+
+    /**
+     * @return true if the templates are ready to be served (always true, unless a warmup is in progress or failed)
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the error of the last warmup, or null if none
+     */
+    public Throwable getWarmupError() {
+        return warmupError;
+    }
+
+    /**
+     * @return the parse time (in ms) of each template parsed by the warmup, by template name
+     */
+    public Map<String, Long> getWarmupTimes() {
+        return Collections.unmodifiableMap(warmupTimes);
+    }
+
+    static private void listTemplateFiles(File folder, List<File> templateFiles) {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (!file.getName().startsWith(".")) {
+                    listTemplateFiles(file, templateFiles);
+                }
+            } else if (file.getName().endsWith(TEMPLATE_EXT)) {
+                templateFiles.add(file);
+            }
+        }
     }
+    // --------- /Warmup --------- //
 
     @Override
     public void render(String path, Object data, Writer out) {
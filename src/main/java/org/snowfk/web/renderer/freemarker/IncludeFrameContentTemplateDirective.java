@@ -6,9 +6,11 @@ package org.snowfk.web.renderer.freemarker;
 import java.io.IOException;
 import java.util.Map;
 
+import org.snowfk.web.Application;
 import org.snowfk.web.RequestContext;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
 
 
@@ -28,6 +30,10 @@ public class IncludeFrameContentTemplateDirective extends IncludeTemplateBase im
     @Inject
     private FeemarkerTemplateNameResolver templateNameResolver;
     
+    // Provider, since the Application depends on the renderer, which depends on this directive
+    @Inject
+    private Provider<Application> applicationProvider;
+    
     
     @Override
     public void execute(Environment env, Map args, TemplateModel[] arg2, TemplateDirectiveBody arg3)
@@ -35,6 +41,16 @@ public class IncludeFrameContentTemplateDirective extends IncludeTemplateBase im
 
         RequestContext rc = getDataModel("r.rc", RequestContext.class);
         
+        // early flush mode, send the frame head to the client, and then process the web models
+        if (rc.isWebModelsPending()) {
+            env.getOut().flush();
+            rc.getRes().flushBuffer();
+            applicationProvider.get().processPendingWebModels(rc);
+            if (rc.getWebModelsError() != null) {
+                return;
+            }
+        }
+        
         String resourcePath = rc.getResourcePath();
         String templateName = templateNameResolver.resolve(resourcePath);
         
@@ -13,6 +13,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.snowfk.SnowRuntimeException;
 import org.snowfk.util.ObjectUtil;
@@ -46,6 +48,9 @@ public class WebBundleDirective implements TemplateDirectiveModel {
     @Inject
     private PathFileResolver pathFileResolver;
     
+    // contextPath + path + fileExt -> last rendered bundle tag
+    private ConcurrentMap<String, CachedTag> tagCache = new ConcurrentHashMap<String, CachedTag>();
+    
     
     @Override
     public void execute(Environment env, Map args, TemplateModel[] tms, TemplateDirectiveBody body)
@@ -84,53 +89,51 @@ public class WebBundleDirective implements TemplateDirectiveModel {
 
         BufferedWriter bw = new BufferedWriter(env.getOut());
         
-        //Part part = webApplication.getPart(path);
-        //File folder = part.getResourceFile();
-        File folder = pathFileResolver.resolve(path);
-        
-        if (!folder.exists()){
-            throw new SnowRuntimeException(Alert.NOT_VALID_WEBBUNDLE_PATH,"path",folder.getAbsolutePath());
-        }
-        
-        StringBuilder sb = new StringBuilder();
-        
         //if debug mode, include all the files
-        
         if (debug_links){
+            //Part part = webApplication.getPart(path);
+            //File folder = part.getResourceFile();
+            File folder = pathFileResolver.resolve(path);
+            
+            if (!folder.exists()){
+                throw new SnowRuntimeException(Alert.NOT_VALID_WEBBUNDLE_PATH,"path",folder.getAbsolutePath());
+            }
+            
+            StringBuilder sb = new StringBuilder();
             List<File> files = webBundleManager.getWebBundleFiles(folder, fileExt);
             for (File file : files){
                 sb.append(buildHtmlTag(webPath + file.getName(), type));
             }
+            bw.write(sb.toString());
         }
         //if not debug mode, then, include the "_web_bundle_all..."
         else{
-            //if there is no key, then the key is the latest type
+            //if there is no key, then the key is the content hash of the bundle (from the WebBundleManager registry, 
+            // no file system access)
             if (key == null){
-                List<File> files = webBundleManager.getWebBundleFiles(folder, fileExt);
-                Long lasttime = 0L;
-                for (File file : files){
-                    Long t = file.lastModified();
-                    if (t > lasttime){
-                        lasttime = t;
-                    }
+                key = webBundleManager.getFingerprint(path, fileExt);
+                if (key == null){
+                    throw new SnowRuntimeException(Alert.NOT_VALID_WEBBUNDLE_PATH,"path",path);
                 }
-                key = "" + lasttime;
             }
             
-            StringBuilder sbHref = new StringBuilder(webPath).append("_web_bundle_all");
-            // if we have a key, then add it.
-            if (key.length() > 0){
-               sbHref.append("__").append(key).append("__");  
+            // the tag only changes with the key, so, reuse it
+            String tagKey = webPath + fileExt;
+            CachedTag cachedTag = tagCache.get(tagKey);
+            if (cachedTag == null || !cachedTag.key.equals(key)){
+                StringBuilder sbHref = new StringBuilder(webPath).append(WebBundleManager.WEB_BUNDLE_ALL_PREFIX);
+                // if we have a key, then add it.
+                if (key.length() > 0){
+                   sbHref.append("__").append(key).append("__");  
+                }
+                sbHref.append(fileExt);
+                
+                cachedTag = new CachedTag(key, buildHtmlTag(sbHref.toString(),type));
+                tagCache.put(tagKey, cachedTag);
             }
-            sbHref.append(fileExt);
-            
-            sb.append(buildHtmlTag(sbHref.toString(),type));
-            
-            
+            bw.write(cachedTag.tag);
         }
         
-        bw.write(sb.toString());
-        
         //System.out.println("WebBundleTest... " + path + " " + type + " " + part.getResourceFile().getAbsolutePath());
         
         bw.flush();
@@ -153,4 +156,14 @@ public class WebBundleDirective implements TemplateDirectiveModel {
         return sb.toString();
     }
 
+    static private class CachedTag {
+        final String key;
+        final String tag;
+
+        CachedTag(String key, String tag){
+            this.key = key;
+            this.tag = tag;
+        }
+    }
+
 }
@@ -0,0 +1,15 @@
+package org.snowfk.test.app.simpleapp;
+
+import org.snowfk.web.ServletAsyncSupport;
+
+/**
+ * The SimpleAppConfig with the ServletAsyncSupportMock (see AsyncRequestTest).
+ */
+public class AsyncAppConfig extends SimpleAppConfig {
+
+    @Override
+    protected void configure() {
+        super.configure();
+        bind(ServletAsyncSupport.class).to(ServletAsyncSupportMock.class);
+    }
+}
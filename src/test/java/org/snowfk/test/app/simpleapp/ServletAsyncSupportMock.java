@@ -0,0 +1,49 @@
+package org.snowfk.test.app.simpleapp;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.snowfk.web.ServletAsyncSupport;
+
+import com.google.inject.Singleton;
+
+/**
+ * Stands for a Servlet 3 container (the test classpath has the Servlet 2.4 API): every request can be put in async
+ * mode, and the startAsync timeout and the completing thread are recorded.
+ */
+@Singleton
+public class ServletAsyncSupportMock extends ServletAsyncSupport {
+    private volatile long        timeout   = -1;
+    private volatile Thread      completingThread;
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    @Override
+    public boolean isAsyncSupported(HttpServletRequest request) {
+        return true;
+    }
+
+    @Override
+    public Object startAsync(HttpServletRequest request, long timeout) {
+        this.timeout = timeout;
+        return request;
+    }
+
+    @Override
+    public void complete(Object asyncContext) {
+        completingThread = Thread.currentThread();
+        completed.countDown();
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public Thread getCompletingThread() {
+        return completingThread;
+    }
+
+    public CountDownLatch getCompleted() {
+        return completed;
+    }
+}
@@ -1,5 +1,7 @@
 package org.snowfk.test.app.simpleapp;
 
+import org.snowfk.web.WebHandlerInterceptor;
+
 import com.google.inject.AbstractModule;
 
 
@@ -7,6 +9,7 @@ public class SimpleAppConfig extends AbstractModule {
 
     @Override
     protected void configure() {
+        bind(WebHandlerInterceptor.class).to(SimpleWebHandlerInterceptor.class);
     }
 
 
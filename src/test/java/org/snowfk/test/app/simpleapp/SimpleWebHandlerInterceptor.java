@@ -0,0 +1,33 @@
+package org.snowfk.test.app.simpleapp;
+
+import java.lang.reflect.Method;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.snowfk.web.AbortWithHttpRedirectException;
+import org.snowfk.web.AbortWithHttpStatusException;
+import org.snowfk.web.RequestContext;
+import org.snowfk.web.WebHandlerInterceptor;
+
+/**
+ * Aborts the "/secured" requests, as an auth interceptor would (403 for "/secured/admin", login redirect otherwise).
+ */
+public class SimpleWebHandlerInterceptor implements WebHandlerInterceptor {
+
+    @Override
+    public boolean before(Method method, RequestContext rc) {
+        String resourcePath = rc.getResourcePath();
+        if (resourcePath != null && resourcePath.startsWith("/secured")) {
+            if (resourcePath.startsWith("/secured/admin")) {
+                throw new AbortWithHttpStatusException(HttpServletResponse.SC_FORBIDDEN);
+            }
+            throw new AbortWithHttpRedirectException("/login");
+        }
+        return true;
+    }
+
+    @Override
+    public void after(Method method, RequestContext rc) {
+    }
+
+}
@@ -1,17 +1,37 @@
 package org.snowfk.test.app.simpleapp.web;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.snowfk.testsupport.mock.HttpServletResponseMock;
 import org.snowfk.util.MapUtil;
+import org.snowfk.web.AbortWithHttpStatusException;
+import org.snowfk.web.CurrentRequestContextHolder;
+import org.snowfk.web.PageCache;
+import org.snowfk.web.RequestContext;
 import org.snowfk.web.method.WebActionHandler;
+import org.snowfk.web.method.WebExceptionHandler;
+import org.snowfk.web.method.WebFileHandler;
 import org.snowfk.web.method.WebModelHandler;
 import org.snowfk.web.method.argument.WebParam;
 
+import com.google.inject.Inject;
+
 public class SimpleWebHandlers {
 
     Map<Long,Map> contactStore = new HashMap<Long, Map>();
     Long contactIdSeq = 1L;
+
+    @Inject
+    private CurrentRequestContextHolder currentRequestContextHolder;
+
+    @Inject
+    private PageCache pageCache;
     
     public SimpleWebHandlers(){
         contactStore.put(contactIdSeq, MapUtil.mapIt("id",contactIdSeq,"name","Mike"));
@@ -37,4 +57,83 @@ public class SimpleWebHandlers {
         return newContact;
         
     }
+    
+    @WebFileHandler(ext=".TXT",matches="/files/.*")
+    public void textFile(RequestContext rc) throws IOException{
+        Writer w = rc.getWriter();
+        w.write("---file " + rc.getResourcePath() + "---");
+        w.close();
+    }
+    
+    @WebFileHandler(ext=".dat",matches="/download/.*")
+    public File download(RequestContext rc){
+        return new File("src/test/resources/simpleApp/css/site.css");
+    }
+
+    @WebModelHandler(startsWith="/failPage")
+    public void failPage(Map m){
+        throw new IllegalStateException("boom");
+    }
+    
+    // both parallel handlers wait for each other, so, they can complete only if run concurrently
+    private volatile CountDownLatch dashboardLatch;
+
+    @WebModelHandler(startsWith="/dashboard")
+    public void dashboardPage(Map m){
+        dashboardLatch = new CountDownLatch(2);
+    }
+
+    @WebModelHandler(matches="/dashboard.*",parallel=true)
+    public void dashboardContacts(Map m, RequestContext rc) throws InterruptedException{
+        dashboardLatch.countDown();
+        m.put("contacts", dashboardLatch.await(5, TimeUnit.SECONDS));
+        m.put("contactsRc", currentRequestContextHolder.getCurrentRequestContext() == rc);
+        m.put("contactsFilter", rc.getParam("contactsFilter"));
+    }
+
+    @WebModelHandler(matches="/dashboard.*",parallel=true)
+    public void dashboardNotes(Map m, RequestContext rc) throws InterruptedException{
+        dashboardLatch.countDown();
+        m.put("notes", dashboardLatch.await(5, TimeUnit.SECONDS));
+        m.put("notesRc", currentRequestContextHolder.getCurrentRequestContext() == rc);
+        m.put("notesFilter", rc.getParam("notesFilter"));
+    }
+
+    // aborted by the SimpleWebHandlerInterceptor
+    @WebModelHandler(startsWith="/secured")
+    public void securedPage(Map m){
+        m.put("secret", "secret");
+    }
+
+    private int cachedPageCount = 0;
+
+    @WebModelHandler(startsWith="/cachedPage",pageCacheTtl=60)
+    public void cachedPage(Map m, @WebParam("invalidate")Boolean invalidate){
+        m.put("count", ++cachedPageCount);
+        // as if the data changed while the page is rendered
+        if (Boolean.TRUE.equals(invalidate)){
+            pageCache.invalidate("/cachedPage");
+        }
+    }
+
+    @WebModelHandler(startsWith="/cachedBigPage",pageCacheTtl=60)
+    public void cachedBigPage(Map m){
+    }
+
+    // what the client already received when the web model runs
+    @WebModelHandler(startsWith="/earlyFlushPage",earlyFlush=true)
+    public void earlyFlushPage(Map m, RequestContext rc){
+        m.put("flushed", ((HttpServletResponseMock) rc.getRes()).getResponseAsString());
+    }
+
+    // not flushed early (no earlyFlush opt-in), so, can still abort
+    @WebModelHandler(startsWith="/earlyFlushAbort")
+    public void earlyFlushAbort(Map m){
+        throw new AbortWithHttpStatusException(404);
+    }
+
+    @WebExceptionHandler
+    public void handleRuntimeException(RuntimeException e, RequestContext rc) throws IOException{
+        rc.getWriter().write("---error " + e.getMessage() + "---");
+    }
 }
@@ -0,0 +1,75 @@
+package org.snowfk.test.simpleapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.snowfk.test.app.simpleapp.AsyncAppConfig;
+import org.snowfk.test.app.simpleapp.ServletAsyncSupportMock;
+import org.snowfk.testsupport.mock.ApplicationLoaderMock;
+import org.snowfk.testsupport.mock.HttpServletRequestMock;
+import org.snowfk.testsupport.mock.HttpServletResponseMock;
+import org.snowfk.testsupport.mock.ServletOutputStreamMock;
+import org.snowfk.util.JsonUtil;
+import org.snowfk.web.PropertyPostProcessor;
+import org.snowfk.web.WebController;
+
+/**
+ * The simpleApp with snow.asyncRequests on, and the ServletAsyncSupportMock standing for a Servlet 3 container.
+ */
+public class AsyncRequestTest {
+
+    private static ApplicationLoaderMock appLoader;
+    private static WebController         webController;
+
+    @BeforeClass
+    public static void initTestClass() throws Exception {
+        appLoader = new ApplicationLoaderMock(new File("src/test/resources/simpleApp"), null);
+        appLoader.setPropertyPostProcessor(new PropertyPostProcessor() {
+            @Override
+            public Properties processProperties(Properties properties) {
+                properties.setProperty("snow.asyncRequests", "true");
+                properties.setProperty("snow.applicationWebModuleConfigClass", AsyncAppConfig.class.getName());
+                return properties;
+            }
+        });
+        appLoader.load();
+        webController = appLoader.getWebController();
+        webController.init();
+    }
+
+    @AfterClass
+    public static void releaseTestClass() throws Exception {
+        webController.destroy();
+    }
+
+    @Test
+    public void testAsyncRequest() throws Exception {
+        ServletAsyncSupportMock asyncSupport = appLoader.getApplicationInjector().getInstance(ServletAsyncSupportMock.class);
+
+        HttpServletRequestMock req = new HttpServletRequestMock();
+        req.setMethod("GET");
+        req.setPathInfo("/dashboard.json");
+        HttpServletResponseMock res = new HttpServletResponseMock(new ServletOutputStreamMock());
+
+        webController.service(req, res);
+        assertTrue(asyncSupport.getCompleted().await(5, TimeUnit.SECONDS));
+
+        // no container timeout by default, and completed by the task, on the async executor
+        assertEquals(0L, asyncSupport.getTimeout());
+        assertTrue(asyncSupport.getCompletingThread() != Thread.currentThread());
+
+        Map result = JsonUtil.toMapAndList(res.getResponseAsString());
+        assertEquals(Boolean.TRUE, result.get("contacts"));
+        assertEquals(Boolean.TRUE, result.get("notes"));
+        assertEquals(Boolean.TRUE, result.get("contactsRc"));
+        assertEquals(Boolean.TRUE, result.get("notesRc"));
+    }
+}
@@ -0,0 +1,92 @@
+package org.snowfk.test.simpleapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.snowfk.testsupport.mock.ApplicationLoaderMock;
+import org.snowfk.testsupport.mock.HttpServletRequestMock;
+import org.snowfk.testsupport.mock.HttpServletResponseMock;
+import org.snowfk.testsupport.mock.ServletOutputStreamMock;
+import org.snowfk.util.JsonUtil;
+import org.snowfk.web.PropertyPostProcessor;
+import org.snowfk.web.ServletAsyncSupport;
+import org.snowfk.web.VirtualThreads;
+import org.snowfk.web.WebController;
+import org.snowfk.web.names.AsyncRequestExecutor;
+import org.snowfk.web.names.WebModelExecutor;
+
+import com.google.inject.Key;
+
+/**
+ * The simpleApp with snow.virtualThreads and snow.asyncRequests on. The test classpath has the Servlet 2.4 API, so,
+ * the requests must be processed synchronously, and the virtual thread executor is bound only if the runtime supports
+ * it.
+ */
+public class ExecutionModeTest {
+
+    private static ApplicationLoaderMock appLoader;
+    private static WebController         webController;
+
+    @BeforeClass
+    public static void initTestClass() throws Exception {
+        appLoader = new ApplicationLoaderMock(new File("src/test/resources/simpleApp"), null);
+        appLoader.setPropertyPostProcessor(new PropertyPostProcessor() {
+            @Override
+            public Properties processProperties(Properties properties) {
+                properties.setProperty("snow.virtualThreads", "true");
+                properties.setProperty("snow.asyncRequests", "true");
+                return properties;
+            }
+        });
+        appLoader.load();
+        webController = appLoader.getWebController();
+        webController.init();
+    }
+
+    @AfterClass
+    public static void releaseTestClass() throws Exception {
+        webController.destroy();
+    }
+
+    @Test
+    public void testExecutorBindings() {
+        Key<ExecutorService> webModelExecutorKey = Key.get(ExecutorService.class, WebModelExecutor.class);
+        Key<ExecutorService> asyncExecutorKey = Key.get(ExecutorService.class, AsyncRequestExecutor.class);
+        if (VirtualThreads.isSupported()) {
+            assertNotNull(appLoader.getApplicationInjector().getExistingBinding(webModelExecutorKey));
+            assertNotNull(appLoader.getApplicationInjector().getExistingBinding(asyncExecutorKey));
+        } else {
+            assertNull(VirtualThreads.newVirtualThreadPerTaskExecutor());
+            assertNull(appLoader.getApplicationInjector().getExistingBinding(webModelExecutorKey));
+            assertNull(appLoader.getApplicationInjector().getExistingBinding(asyncExecutorKey));
+        }
+    }
+
+    @Test
+    public void testSynchronousFallback() throws Exception {
+        HttpServletRequestMock req = new HttpServletRequestMock();
+        req.setMethod("GET");
+        req.setPathInfo("/dashboard.json");
+        HttpServletResponseMock res = new HttpServletResponseMock(new ServletOutputStreamMock());
+
+        assertFalse(appLoader.getApplicationInjector().getInstance(ServletAsyncSupport.class).isAsyncSupported(req));
+
+        // not async, so, the response is complete when service returns
+        webController.service(req, res);
+        Map result = JsonUtil.toMapAndList(res.getResponseAsString());
+        assertEquals(Boolean.TRUE, result.get("contacts"));
+        assertEquals(Boolean.TRUE, result.get("notes"));
+        assertEquals(Boolean.TRUE, result.get("contactsRc"));
+        assertEquals(Boolean.TRUE, result.get("notesRc"));
+    }
+}
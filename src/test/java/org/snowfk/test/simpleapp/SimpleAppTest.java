@@ -4,14 +4,29 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.snowfk.testsupport.SnowWebApplicationTestSupport;
 import org.snowfk.testsupport.mock.RequestContextMockFactory.RequestMethod;
 import org.snowfk.testsupport.mock.RequestContextMock;
+import org.snowfk.util.ContentUtil;
+import org.snowfk.util.FileUtil;
 import org.snowfk.util.MapUtil;
+import org.snowfk.web.Application;
+import org.snowfk.web.PageCache;
+import org.snowfk.web.ResponseCompressor;
+import org.snowfk.web.StaticAssetCache;
+import org.snowfk.web.part.ContextModelBuilder;
+import org.snowfk.web.renderer.WebBundleManager;
+import org.snowfk.web.renderer.freemarker.FeemarkerTemplateNameResolver;
+import org.snowfk.web.renderer.freemarker.FreemarkerTemplateRenderer;
 
 public class SimpleAppTest extends SnowWebApplicationTestSupport {
 
@@ -53,7 +68,8 @@ public class SimpleAppTest extends SnowWebApplicationTestSupport {
             result = rc.getResponseAsJson();
             assertEquals("Dylan",MapUtil.getNestedValue(result, "contact.name"));
 
- 
+            // the second /contact.json request should have been resolved from the route cache
+            assertTrue(appLoader.getApplication().getWebModelRouteCacheHitCount() > 0);
     }
 
     @Test
@@ -118,6 +134,161 @@ public class SimpleAppTest extends SnowWebApplicationTestSupport {
 
     }    
     
+    @Test
+    public void testTemplateWarmup() throws Exception {
+        FreemarkerTemplateRenderer renderer = appInjector.getInstance(FreemarkerTemplateRenderer.class);
+        assertTrue(webController.isReady());
+
+        // all the templates, including the frames, have been parsed at init
+        boolean hasHelloPage = false, hasFrame = false;
+        for (String templateName : renderer.getWarmupTimes().keySet()) {
+            hasHelloPage |= templateName.endsWith("helloPage.ftl");
+            hasFrame |= templateName.endsWith("frame-default.ftl");
+        }
+        assertTrue(hasHelloPage && hasFrame);
+    }
+
+    @Test
+    public void testTemplateNameCache() throws Exception {
+        FeemarkerTemplateNameResolver resolver = appInjector.getInstance(FeemarkerTemplateNameResolver.class);
+        File newTemplate = new File("src/test/resources/simpleApp/newPage.ftl");
+        try {
+            // not found is cached as well
+            assertEquals(null, resolver.resolve("/newPage"));
+            FileUtil.saveStringToFile("new page", newTemplate);
+            assertEquals(null, resolver.resolve("/newPage"));
+
+            resolver.clear();
+            assertEquals(newTemplate.getAbsolutePath(), resolver.resolve("/newPage"));
+        } finally {
+            newTemplate.delete();
+            resolver.clear();
+        }
+    }
+
+    @Test
+    public void testFragmentCache() throws Exception {
+        RequestContextMock rc;
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedFragment");
+        rc.setParamMap(MapUtil.mapIt("name", "John", "lang", "en"));
+        webController.service(rc);
+        assertEquals("---Hello John---", rc.getResponseAsString());
+
+        // same key and lang, so, the cached fragment
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedFragment");
+        rc.setParamMap(MapUtil.mapIt("name", "Mike", "lang", "en"));
+        webController.service(rc);
+        assertEquals("---Hello John---", rc.getResponseAsString());
+
+        // varies by lang
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedFragment");
+        rc.setParamMap(MapUtil.mapIt("name", "Mike", "lang", "fr"));
+        webController.service(rc);
+        assertEquals("---Hello Mike---", rc.getResponseAsString());
+
+        // same key and lang, but another template, so, another fragment
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedFragment2");
+        rc.setParamMap(MapUtil.mapIt("name", "Mike", "lang", "en"));
+        webController.service(rc);
+        assertEquals("---Hi Mike---", rc.getResponseAsString());
+    }
+
+    @Test
+    public void testPageCache() throws Exception {
+        PageCache pageCache = appInjector.getInstance(PageCache.class);
+        RequestContextMock rc;
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedPage");
+        webController.service(rc);
+        assertEquals("---Page 1---", rc.getResponseAsString());
+
+        // served from the cache (the WebModelHandler is not called)
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedPage");
+        webController.service(rc);
+        assertEquals("---Page 1---", rc.getResponseAsString());
+        assertTrue(rc.getResponseHeader("ETag") != null);
+
+        // POSTs are never cached
+        rc = requestContextFactory.createRequestContext(RequestMethod.POST, "/cachedPage");
+        webController.service(rc);
+        assertEquals("---Page 2---", rc.getResponseAsString());
+
+        pageCache.invalidate("/cachedPage");
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedPage");
+        webController.service(rc);
+        assertEquals("---Page 3---", rc.getResponseAsString());
+
+        // invalidated again while rendered, so, not served from the cache
+        pageCache.invalidate("/cachedPage");
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedPage");
+        rc.setParamMap(MapUtil.mapIt("invalidate", "true"));
+        webController.service(rc);
+        assertEquals("---Page 4---", rc.getResponseAsString());
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedPage");
+        webController.service(rc);
+        assertEquals("---Page 5---", rc.getResponseAsString());
+
+        // gzip variant, only when the rendered page would be compressed (snow.gzipResponses)
+        ResponseCompressor responseCompressor = appInjector.getInstance(ResponseCompressor.class);
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedBigPage");
+        rc.setRequestHeader("Accept-Encoding", "gzip");
+        webController.service(rc);
+        assertEquals("gzip", rc.getResponseHeader("Content-Encoding"));
+        responseCompressor.injectGzipResponses("false");
+        try {
+            pageCache.invalidate("/cachedBigPage");
+            rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/cachedBigPage");
+            rc.setRequestHeader("Accept-Encoding", "gzip");
+            webController.service(rc);
+            assertEquals(null, rc.getResponseHeader("Content-Encoding"));
+            assertTrue(rc.getResponseAsString().contains("line 50"));
+        } finally {
+            responseCompressor.injectGzipResponses("true");
+            pageCache.invalidate("/cachedBigPage");
+        }
+    }
+
+    @Test
+    public void testLazyRequestModel() throws Exception {
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/helloPage");
+        rc.setRequestHeader("X-Test", "lazy");
+        Map r = ContextModelBuilder.buildRequestModel(rc);
+
+        // no auth, so, no auth nor user
+        assertTrue(!r.containsKey("auth") && r.get("user") == null);
+        assertTrue(r.containsKey("webState") && r.containsKey("h"));
+        assertEquals("lazy", ((Map) r.get("h")).get("x-test"));
+        assertEquals(r.get("fullPath"), r.get("href"));
+        assertEquals(rc, r.get("rc"));
+    }
+
+    @Test
+    public void testEarlyFlush() throws Exception {
+        Application application = appInjector.getInstance(Application.class);
+        RequestContextMock rc;
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/earlyFlushPage");
+        webController.service(rc);
+        assertEquals("---[]---", rc.getResponseAsString());
+
+        // the frame head is sent before the web models run
+        application.injectEarlyFlush("true");
+        try {
+            rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/earlyFlushPage");
+            webController.service(rc);
+            assertEquals("---[---]---", rc.getResponseAsString());
+
+            // the pages without the earlyFlush opt-in are rendered as usual, so, their web models can abort
+            rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/earlyFlushAbort");
+            webController.service(rc);
+            assertEquals(404, rc.getResponseStatus());
+            assertEquals("", rc.getResponseAsString());
+        } finally {
+            application.injectEarlyFlush("false");
+        }
+    }
+
     @Test
     public void testWebBundle() throws Exception{
         String result;
@@ -130,6 +301,12 @@ public class SimpleAppTest extends SnowWebApplicationTestSupport {
         String shouldContain = "<script type='text/javascript' src='/js/_web_bundle_all__";
         assertTrue("Should contain:\n" + shouldContain + " but was:\n" + result,result.contains(shouldContain) );
         
+        // the key is the content hash of the bundle
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/_web_bundle_all.js");
+        webController.service(rc);
+        String fingerprint = ContentUtil.md5Hex(rc.getResponseAsString().getBytes("UTF-8"));
+        assertTrue(result.contains("/js/_web_bundle_all__" + fingerprint + "__.js"));
+        
         // test with _debug_links
         rc = requestContextFactory.createRequestContext(RequestMethod.POST, "/webBundleTest");
         rc.setParamMap(MapUtil.mapIt("_debug_links","true"));
@@ -140,4 +317,340 @@ public class SimpleAppTest extends SnowWebApplicationTestSupport {
         
     }
 
+    @Test
+    public void testWebBundleContent() throws Exception {
+        String js1 = FileUtil.getFileContentAsString(new File("src/test/resources/simpleApp/js/js1.js"));
+        RequestContextMock rc;
+
+        // current fingerprint, so, immutable
+        String fingerprint = appInjector.getInstance(WebBundleManager.class).getFingerprint("/js/", ".js");
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/_web_bundle_all__" + fingerprint + "__.js");
+        webController.service(rc);
+        String result = rc.getResponseAsString();
+        assertTrue(result.contains(js1));
+        assertTrue(rc.getResponseHeader("Cache-Control").contains("immutable"));
+
+        // stale (or custom) key, so, must be revalidated
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/_web_bundle_all__123__.js");
+        webController.service(rc);
+        assertEquals(result, rc.getResponseAsString());
+        assertEquals("no-cache,max-age=0", rc.getResponseHeader("Cache-Control"));
+
+        // not fingerprinted, so, must be revalidated
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/_web_bundle_all.js");
+        webController.service(rc);
+        assertEquals(result, rc.getResponseAsString());
+        assertEquals("no-cache,max-age=0", rc.getResponseHeader("Cache-Control"));
+
+        // minified
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/_web_bundle_all.css");
+        webController.service(rc);
+        result = rc.getResponseAsString();
+        assertTrue(result.startsWith(".contact-1{margin:1px;padding:2px 4px;color:#333}.contact-2{"));
+    }
+
+    @Test
+    public void testWebFileHandler() throws Exception {
+        String result;
+        RequestContextMock rc;
+
+        // matches the extension (case-insensitive) and the regex
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/files/notes.txt");
+        webController.service(rc);
+        result = rc.getResponseAsString();
+        assertEquals("---file /files/notes.txt---", result);
+
+        // matches the extension but not the regex, so, fall back to the file (which does not exist)
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/other/notes.txt");
+        webController.service(rc);
+        result = rc.getResponseAsString();
+        assertEquals("", result);
+    }
+
+    @Test
+    public void testInterceptorAbort() throws Exception {
+        RequestContextMock rc;
+
+        // not handled by the RuntimeException WebExceptionHandler
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/secured/admin");
+        webController.service(rc);
+        assertEquals(403, rc.getResponseStatus());
+        assertEquals("", rc.getResponseAsString());
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/secured/page.json");
+        webController.service(rc);
+        assertEquals(302, rc.getResponseStatus());
+        assertEquals("/login", rc.getResponseHeader("Location"));
+        assertEquals("", rc.getResponseAsString());
+    }
+
+    @Test
+    public void testWebExceptionHandler() throws Exception {
+        // twice, the second time, the handler comes from the resolved cache
+        for (int i = 0; i < 2; i++) {
+            RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/failPage");
+            webController.service(rc);
+            String result = rc.getResponseAsString();
+            assertTrue("Should start with '---error boom---' but was:\n" + result, result.startsWith("---error boom---"));
+        }
+    }
+
+    @Test
+    public void testParallelWebModels() throws Exception {
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/dashboard.json");
+        // not set with setParamMap, so, parsed from the request
+        rc.setRequestParam("contactsFilter", "mike");
+        rc.setRequestParam("notesFilter", "todo");
+        webController.service(rc);
+        Map result = rc.getResponseAsJson();
+        assertEquals(Boolean.TRUE, result.get("contacts"));
+        assertEquals(Boolean.TRUE, result.get("notes"));
+        // the handler run on the web model executor sees the request context as well
+        assertEquals(Boolean.TRUE, result.get("contactsRc"));
+        assertEquals(Boolean.TRUE, result.get("notesRc"));
+        // both parallel handlers read the params, which are parsed only once (before they run)
+        assertEquals("mike", result.get("contactsFilter"));
+        assertEquals("todo", result.get("notesFilter"));
+        assertEquals(1, rc.getRequestParamMapReadCount());
+    }
+
+    @Test
+    public void testStaticFile() throws Exception {
+        File file = new File("src/test/resources/simpleApp/js/js1.js");
+
+        RequestContextMock rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/js1.js");
+        webController.service(rc);
+
+        assertEquals(FileUtil.getFileContentAsString(file), rc.getResponseAsString());
+        assertEquals((int) file.length(), rc.getResponseContentLength());
+    }
+
+    @Test
+    public void testStaticAssetCache() throws Exception {
+        File file = new File("src/test/resources/simpleApp/css/site.css");
+        String fileContent = FileUtil.getFileContentAsString(file);
+        StaticAssetCache staticAssetCache = appInjector.getInstance(StaticAssetCache.class);
+        RequestContextMock rc;
+
+        // gzip variant
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("Accept-Encoding", "gzip, deflate");
+        webController.service(rc);
+        assertEquals("gzip", rc.getResponseHeader("Content-Encoding"));
+        byte[] gzipContent = rc.getResponseAsByArray();
+        assertEquals(gzipContent.length, rc.getResponseContentLength());
+        assertEquals(fileContent, new String(gunzip(gzipContent), "UTF-8"));
+        String gzipEtag = rc.getResponseHeader("ETag");
+        assertTrue(gzipEtag != null && gzipEtag.endsWith("-gzip\""));
+
+        // identity variant, from the cache, with its own etag
+        long hitCount = staticAssetCache.getHitCount();
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        webController.service(rc);
+        assertEquals(null, rc.getResponseHeader("Content-Encoding"));
+        assertEquals(fileContent, rc.getResponseAsString());
+        String etag = rc.getResponseHeader("ETag");
+        assertTrue(etag != null && etag.startsWith("\"") && !etag.equals(gzipEtag));
+        assertEquals(hitCount + 1, staticAssetCache.getHitCount());
+
+        // the gzip etag does not validate the identity variant
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("If-None-Match", gzipEtag);
+        webController.service(rc);
+        assertEquals(fileContent, rc.getResponseAsString());
+
+        // but does validate the gzip variant
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("Accept-Encoding", "gzip");
+        rc.setRequestHeader("If-None-Match", gzipEtag);
+        webController.service(rc);
+        assertEquals(304, rc.getResponseStatus());
+    }
+
+    @Test
+    public void testConditionalGet() throws Exception {
+        RequestContextMock rc;
+
+        // --------- Static File --------- //
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        webController.service(rc);
+        String etag = rc.getResponseHeader("ETag");
+        assertEquals(200, rc.getResponseStatus());
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("If-None-Match", etag);
+        webController.service(rc);
+        assertEquals(304, rc.getResponseStatus());
+        assertEquals(0, rc.getResponseAsByArray().length);
+
+        long lastModified = new File("src/test/resources/simpleApp/css/site.css").lastModified();
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("If-Modified-Since", String.valueOf(lastModified));
+        webController.service(rc);
+        assertEquals(304, rc.getResponseStatus());
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("If-None-Match", "\"other\"");
+        webController.service(rc);
+        assertEquals(200, rc.getResponseStatus());
+        // --------- /Static File --------- //
+
+        // --------- Web Bundle --------- //
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/_web_bundle_all.js");
+        webController.service(rc);
+        etag = rc.getResponseHeader("ETag");
+        assertTrue(rc.getResponseAsString().length() > 0);
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/js/_web_bundle_all.js");
+        rc.setRequestHeader("If-None-Match", etag);
+        webController.service(rc);
+        assertEquals(304, rc.getResponseStatus());
+        assertEquals("", rc.getResponseAsString());
+        // --------- /Web Bundle --------- //
+
+        // --------- Rendered Template (snow.renderedEtag=true) --------- //
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/helloPage");
+        rc.setParamMap(MapUtil.mapIt("name", "John"));
+        webController.service(rc);
+        etag = rc.getResponseHeader("ETag");
+        assertEquals("---Hello John---", rc.getResponseAsString());
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/helloPage");
+        rc.setParamMap(MapUtil.mapIt("name", "John"));
+        rc.setRequestHeader("If-None-Match", etag);
+        webController.service(rc);
+        assertEquals(304, rc.getResponseStatus());
+        assertEquals("", rc.getResponseAsString());
+
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/helloPage");
+        rc.setParamMap(MapUtil.mapIt("name", "Mike"));
+        rc.setRequestHeader("If-None-Match", etag);
+        webController.service(rc);
+        assertEquals(200, rc.getResponseStatus());
+        assertEquals("---Hello Mike---", rc.getResponseAsString());
+        // --------- /Rendered Template (snow.renderedEtag=true) --------- //
+    }
+
+    @Test
+    public void testRangeRequest() throws Exception {
+        String fileContent = FileUtil.getFileContentAsString(new File("src/test/resources/simpleApp/css/site.css"));
+        RequestContextMock rc;
+        String result;
+
+        // single range
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/download/site.dat");
+        rc.setRequestHeader("Range", "bytes=0-9");
+        webController.service(rc);
+        assertEquals(206, rc.getResponseStatus());
+        assertEquals("bytes 0-9/" + fileContent.length(), rc.getResponseHeader("Content-Range"));
+        assertEquals(fileContent.substring(0, 10), rc.getResponseAsString());
+
+        // multiple ranges
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/download/site.dat");
+        rc.setRequestHeader("Range", "bytes=0-4,20-24");
+        webController.service(rc);
+        assertEquals(206, rc.getResponseStatus());
+        result = rc.getResponseAsString();
+        assertEquals(result.length(), rc.getResponseContentLength());
+        assertTrue(result.contains("Content-Range: bytes 0-4/" + fileContent.length() + "\r\n\r\n" + fileContent.substring(0, 5) + "\r\n"));
+        assertTrue(result.contains("Content-Range: bytes 20-24/" + fileContent.length() + "\r\n\r\n" + fileContent.substring(20, 25) + "\r\n"));
+        assertTrue(result.endsWith("--\r\n"));
+
+        // not satisfiable
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/download/site.dat");
+        rc.setRequestHeader("Range", "bytes=100000-");
+        webController.service(rc);
+        assertEquals(416, rc.getResponseStatus());
+
+        // If-Range does not match, so, whole content
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/download/site.dat");
+        rc.setRequestHeader("Range", "bytes=0-9");
+        rc.setRequestHeader("If-Range", "\"other\"");
+        webController.service(rc);
+        assertEquals(200, rc.getResponseStatus());
+        assertEquals(fileContent, rc.getResponseAsString());
+
+        // --------- Cached Asset --------- //
+        // load the asset in the static asset cache
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        webController.service(rc);
+        assertEquals("bytes", rc.getResponseHeader("Accept-Ranges"));
+        String etag = rc.getResponseHeader("ETag");
+
+        // single range, of the identity content even if the client accepts gzip
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("Accept-Encoding", "gzip");
+        rc.setRequestHeader("Range", "bytes=0-9");
+        rc.setRequestHeader("If-Range", etag);
+        webController.service(rc);
+        assertEquals(206, rc.getResponseStatus());
+        assertEquals(null, rc.getResponseHeader("Content-Encoding"));
+        assertEquals("bytes 0-9/" + fileContent.length(), rc.getResponseHeader("Content-Range"));
+        assertEquals(10, rc.getResponseContentLength());
+        assertEquals(fileContent.substring(0, 10), rc.getResponseAsString());
+
+        // multiple ranges
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("Range", "bytes=0-4,20-24");
+        webController.service(rc);
+        assertEquals(206, rc.getResponseStatus());
+        result = rc.getResponseAsString();
+        assertEquals(result.length(), rc.getResponseContentLength());
+        assertTrue(result.contains("Content-Range: bytes 20-24/" + fileContent.length() + "\r\n\r\n" + fileContent.substring(20, 25) + "\r\n"));
+
+        // not satisfiable
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/css/site.css");
+        rc.setRequestHeader("Range", "bytes=100000-");
+        webController.service(rc);
+        assertEquals(416, rc.getResponseStatus());
+        // --------- /Cached Asset --------- //
+    }
+
+    @Test
+    public void testGzipResponse() throws Exception {
+        RequestContextMock rc;
+
+        // the uncompressed page
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/bigPage");
+        webController.service(rc);
+        String page = rc.getResponseAsString();
+        assertEquals(null, rc.getResponseHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", rc.getResponseHeader("Vary"));
+        assertTrue(page.contains("line 50"));
+
+        // buffered (GET with snow.renderedEtag)
+        rc = requestContextFactory.createRequestContext(RequestMethod.GET, "/bigPage");
+        rc.setRequestHeader("Accept-Encoding", "gzip");
+        webController.service(rc);
+        assertEquals("gzip", rc.getResponseHeader("Content-Encoding"));
+        assertTrue(rc.getResponseHeader("ETag").endsWith("-gzip\""));
+        assertEquals(page, new String(gunzip(rc.getResponseAsByArray()), "UTF-8"));
+
+        // streamed (POST)
+        rc = requestContextFactory.createRequestContext(RequestMethod.POST, "/bigPage");
+        rc.setRequestHeader("Accept-Encoding", "gzip");
+        webController.service(rc);
+        assertEquals("gzip", rc.getResponseHeader("Content-Encoding"));
+        assertEquals(page, new String(gunzip(rc.getResponseAsByArray()), "UTF-8"));
+
+        // under snow.gzipMinSize, sent as is
+        rc = requestContextFactory.createRequestContext(RequestMethod.POST, "/helloPage");
+        rc.setParamMap(MapUtil.mapIt("name", "John"));
+        rc.setRequestHeader("Accept-Encoding", "gzip");
+        webController.service(rc);
+        assertEquals(null, rc.getResponseHeader("Content-Encoding"));
+        assertEquals("---Hello John---", rc.getResponseAsString());
+    }
+
+    private static byte[] gunzip(byte[] content) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(content));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
 }
@@ -0,0 +1,81 @@
+package org.snowfk.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.snowfk.util.LruCache;
+
+public class LruCacheTest {
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        LruCache<String, String> cache = new LruCache<String, String>(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        // touch "a", so "b" becomes the least recently used
+        assertEquals("A", cache.get("a"));
+        cache.put("c", "C");
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(2, cache.size());
+
+        assertEquals(3L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+    }
+
+    @Test
+    public void testWeigh() {
+        LruCache<String, String> cache = new LruCache<String, String>(10) {
+            @Override
+            protected long weigh(String key, String value) {
+                return value.length();
+            }
+        };
+        cache.put("a", "123456");
+        cache.put("b", "1234");
+        assertEquals(10L, cache.getWeight());
+
+        // too heavy, not cached
+        cache.put("c", "12345678901");
+        assertNull(cache.get("c"));
+
+        // evict "a" to make room
+        cache.put("d", "12");
+        assertNull(cache.get("a"));
+        assertEquals(6L, cache.getWeight());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final LruCache<Integer, String> cache = new LruCache<Integer, String>(100);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 1000;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        cache.put(offset + i, "v" + i);
+                        cache.get(offset + i / 2);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertEquals((long) cache.size(), cache.getWeight());
+        assertEquals(4000L, cache.getHitCount() + cache.getMissCount());
+    }
+}
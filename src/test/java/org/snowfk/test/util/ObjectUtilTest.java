@@ -102,4 +102,20 @@ public class ObjectUtilTest {
             
         }
     }
+
+    @Test
+    public void testValueConverters() {
+        Class[] classes = { String.class, Integer.class, Long.class, Float.class, Double.class, Boolean.class,
+                java.util.Date.class, Object.class };
+        String[] values = { null, "", "12", "1,000.5", "true", "2010-03-04", "abc" };
+        for (Class cls : classes) {
+            ObjectUtil.ValueConverter converter = ObjectUtil.getValueConverter(cls);
+            for (String value : values) {
+                assertEquals(cls + " " + value, ObjectUtil.getValue(value, cls, null), converter.convert(value, null));
+            }
+        }
+        assertEquals(7L, ObjectUtil.getValueConverter(Long.class).convert("abc", 7L));
+        Long[] ids = ObjectUtil.getValueConverter(Long[].class).convert(new String[] { "1", "x" }, null);
+        assertTrue(java.util.Arrays.equals(new Long[] { 1L, null }, ids));
+    }
 }
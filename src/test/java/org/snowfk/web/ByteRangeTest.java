@@ -0,0 +1,39 @@
+package org.snowfk.web;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testParse() {
+        List<ByteRange> ranges;
+
+        ranges = ByteRange.parse("bytes=0-99", 1000);
+        assertEquals(1, ranges.size());
+        assertEquals("bytes 0-99/1000", ranges.get(0).getContentRange(1000));
+
+        // open ended, and end clamped to the content length
+        ranges = ByteRange.parse("bytes=900-, 950-2000", 1000);
+        assertEquals(2, ranges.size());
+        assertEquals(100L, ranges.get(0).getLength());
+        assertEquals(999L, ranges.get(1).getEnd());
+
+        // suffix range
+        ranges = ByteRange.parse("bytes=-100", 1000);
+        assertEquals(900L, ranges.get(0).getStart());
+        assertEquals(999L, ranges.get(0).getEnd());
+
+        // unsatisfiable
+        assertEquals(0, ByteRange.parse("bytes=1000-", 1000).size());
+
+        // invalid or unsupported, so ignored
+        assertNull(ByteRange.parse("bytes=100-10", 1000));
+        assertNull(ByteRange.parse("bytes=a-b", 1000));
+        assertNull(ByteRange.parse("items=0-10", 1000));
+    }
+}
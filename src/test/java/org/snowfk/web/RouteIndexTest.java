@@ -0,0 +1,39 @@
+package org.snowfk.web;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class RouteIndexTest {
+
+    @Test
+    public void testLiteralPrefix() {
+        assertEquals("/contact/", RouteIndex.getLiteralPrefix("/contact/.*"));
+        assertEquals("/contact/", RouteIndex.getLiteralPrefix("^/contact/\\d+"));
+        // the 's' is optional, so it cannot be part of the prefix
+        assertEquals("/contact", RouteIndex.getLiteralPrefix("/contacts?/.*"));
+        assertEquals("", RouteIndex.getLiteralPrefix(".*/edit"));
+        assertEquals("", RouteIndex.getLiteralPrefix("/a/.*|/b/.*"));
+    }
+
+    @Test
+    public void testMatchKeepsRegistrationOrder() {
+        RouteIndex<String> index = new RouteIndex<String>();
+        index.add(Pattern.compile(".*/edit"), "anyEdit");
+        index.add(Pattern.compile("/contact/.*"), "contact");
+        index.add(Pattern.compile("/contact/\\d+/edit"), "contactEdit");
+        index.add(Pattern.compile("/note/.*"), "note");
+        // second pattern for the same target should not duplicate it
+        index.add(Pattern.compile("/contact/1/.*"), "contact");
+
+        List<String> r = index.match("/contact/1/edit");
+        assertEquals(Arrays.asList("anyEdit", "contact", "contactEdit"), r);
+
+        assertEquals(Arrays.asList("note"), index.match("/note/12"));
+        assertEquals(0, index.match("/other").size());
+    }
+}
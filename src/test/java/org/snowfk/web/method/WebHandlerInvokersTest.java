@@ -0,0 +1,40 @@
+package org.snowfk.web.method;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.fail;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+public class WebHandlerInvokersTest {
+
+    public static class Handlers {
+        public String hello(String name, long count) {
+            return name + count;
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        Method m = Handlers.class.getMethod("hello", String.class, long.class);
+        WebHandlerInvoker invoker = WebHandlerInvokers.create(m);
+        assertEquals("john3", invoker.invoke(new Handlers(), new Object[] { "john", 3L }));
+    }
+
+    @Test
+    public void testExceptionsAreUnwrapped() throws Exception {
+        Method m = Handlers.class.getMethod("fail", String.class);
+        WebHandlerInvoker invoker = WebHandlerInvokers.create(m);
+        try {
+            invoker.invoke(new Handlers(), new Object[] { "boom" });
+            fail("should have thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.snowfk.web.method.argument;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.snowfk.testsupport.mock.HttpServletRequestMock;
+import org.snowfk.testsupport.mock.HttpServletResponseMock;
+import org.snowfk.testsupport.mock.RequestContextMock;
+import org.snowfk.testsupport.mock.ServletOutputStreamMock;
+import org.snowfk.web.RequestContext;
+
+public class WebArgRefTest {
+
+    public enum Level {
+        junior, senior
+    }
+
+    @Test
+    public void testSingleValueParams() {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("id", "1,000");
+        params.put("ratio", "0.5");
+        params.put("name", "");
+        params.put("active", "true");
+        params.put("level", "senior");
+        params.put("badLevel", "expert");
+        params.put("ids", new String[] { "1", "2" });
+        params.put("oneId", "3");
+        RequestContext rc = newRequestContext(params, "/contact");
+
+        assertEquals(1000L, resolve(param("id"), Long.class, rc));
+        assertEquals(1000, resolve(param("id"), Integer.class, rc));
+        assertEquals(0.5f, resolve(param("ratio"), Float.class, rc));
+        assertEquals("", resolve(param("name"), String.class, rc));
+        assertEquals(Boolean.TRUE, resolve(param("active"), Boolean.class, rc));
+        assertEquals(Level.senior, resolve(param("level"), Level.class, rc));
+        assertNull(resolve(param("badLevel"), Level.class, rc));
+        assertNull(resolve(param("missing"), Long.class, rc));
+        assertTrue(Arrays.equals(new Long[] { 1L, 2L }, (Long[]) resolve(param("ids"), Long[].class, rc)));
+        assertTrue(Arrays.equals(new Long[] { 3L }, (Long[]) resolve(param("oneId"), Long[].class, rc)));
+        // a single value class without @WebParam takes its name from the class
+        params.put("level", "junior");
+        assertEquals(Level.junior, new WebArgRef(Level.class).getValue(null, rc));
+    }
+
+    @Test
+    public void testSameAsGetParam() {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("a", "12");
+        params.put("b", "abc");
+        params.put("c", new String[] { "1", "x" });
+        RequestContext rc = newRequestContext(params, "/contact");
+
+        Class[] classes = { String.class, Integer.class, Long.class, Float.class, Boolean.class, Level.class,
+                Long[].class, String[].class };
+        for (String name : new String[] { "a", "b", "c", "d" }) {
+            for (Class cls : classes) {
+                Object expected = rc.getParam(name, cls);
+                Object value = resolve(param(name), cls, rc);
+                if (cls.isArray()) {
+                    assertTrue(name + " " + cls, (expected == null) ? value == null
+                                            : Arrays.equals((Object[]) expected, (Object[]) value));
+                } else {
+                    assertEquals(name + " " + cls, expected, value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWebPathAt() {
+        RequestContext rc = newRequestContext(new HashMap<String, Object>(), "/contact/12/senior");
+
+        assertEquals("contact", resolve(path(0), String.class, rc));
+        assertEquals(12L, resolve(path(1), Long.class, rc));
+        assertEquals(Level.senior, resolve(path(2), Level.class, rc));
+        assertNull(resolve(path(3), Long.class, rc));
+        assertEquals("/contact/12/senior", resolve(path(-1), String.class, rc));
+    }
+
+    // --------- Utils --------- //
+    private Object resolve(WebParam webParam, Class paramClass, RequestContext rc) {
+        WebArgRef webArgRef = new WebArgRef(webParam, paramClass);
+        webArgRef.initResolver();
+        return webArgRef.getValue(null, rc);
+    }
+
+    private Object resolve(WebPath webPath, Class paramClass, RequestContext rc) {
+        WebArgRef webArgRef = new WebArgRef(webPath, paramClass);
+        webArgRef.initResolver();
+        return webArgRef.getValue(null, rc);
+    }
+
+    private RequestContext newRequestContext(Map<String, Object> params, String resourcePath) {
+        RequestContextMock rc = new RequestContextMock(new HttpServletRequestMock(), new HttpServletResponseMock(
+                                new ServletOutputStreamMock()), null);
+        rc.setParamMap(params);
+        rc.setResourcePath(resourcePath);
+        return rc;
+    }
+
+    static private WebParam param(final String name) {
+        return new WebParam() {
+            public String value() {
+                return name;
+            }
+
+            public Class<? extends Annotation> annotationType() {
+                return WebParam.class;
+            }
+        };
+    }
+
+    static private WebPath path(final int index) {
+        return new WebPath() {
+            public int value() {
+                return index;
+            }
+
+            public Class<? extends Annotation> annotationType() {
+                return WebPath.class;
+            }
+        };
+    }
+    // --------- /Utils --------- //
+}
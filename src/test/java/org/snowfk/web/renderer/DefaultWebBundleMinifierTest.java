@@ -0,0 +1,38 @@
+package org.snowfk.web.renderer;
+
+import static junit.framework.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class DefaultWebBundleMinifierTest {
+
+    private DefaultWebBundleMinifier minifier = new DefaultWebBundleMinifier();
+
+    @Test
+    public void testMinifyJs() {
+        String js = "/*! license */\n" 
+                  + "// a comment\n"
+                  + "function   add(a, b) {\n"
+                  + "    /* inline */ return a + b; // sum\n"
+                  + "}\n"
+                  + "\n"
+                  + "var s = \"a  // not a comment\";\n"
+                  + "var re = /\\/*  [/]x/g, half = 4 / 2;\n"
+                  + "var r = a++  /  2, q = b--  /  3;\n";
+        assertEquals("/*! license */\n"
+                   + "function add(a, b) {\n"
+                   + "return a + b;\n"
+                   + "}\n"
+                   + "var s = \"a  // not a comment\";\n"
+                   + "var re = /\\/*  [/]x/g, half = 4 / 2;\n"
+                   + "var r = a++ / 2, q = b-- / 3;\n", minifier.minify(js, ".js"));
+    }
+
+    @Test
+    public void testMinifyCss() {
+        String css = "/* header */\n"
+                   + ".a  .b,\n.c > .d {\n    margin: 1px  2px;\n    content: \"  x  \";\n}\n"
+                   + "a:hover { color : #333; }\n";
+        assertEquals(".a .b,.c>.d{margin:1px 2px;content:\"  x  \"}a:hover{color :#333}", minifier.minify(css, ".css"));
+    }
+}
@@ -0,0 +1,133 @@
+package org.snowfk.web.renderer;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.CharArrayWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class StreamingJsonRendererTest {
+
+    private StreamingJsonRenderer streamingRenderer = new StreamingJsonRenderer();
+    private DefaultJsonRenderer   jsonLibRenderer   = new DefaultJsonRenderer();
+
+    public enum Color {
+        red, blue
+    }
+
+    public static class Contact {
+        private String   name;
+        private Integer  age;
+        private Boolean  active;
+        private List     tags;
+        private Color    color = Color.red;
+        private double   score = 1.0;
+        private Contact  self;
+
+        public String getName() { return name; }
+        public Integer getAge() { return age; }
+        public Boolean getActive() { return active; }
+        public List getTags() { return tags; }
+        public Color getColor() { return color; }
+        public double getScore() { return score; }
+        public Contact getSelf() { return self; }
+        public boolean isVisible() { return true; }
+    }
+
+    public static class BrokenContact {
+        public String getA() { return "a"; }
+        public String getB() { throw new IllegalStateException("boom"); }
+    }
+
+    @Test
+    public void testSameAsJsonLib() {
+        Map m = new LinkedHashMap();
+        m.put("nul", null);
+        m.put("str", "a\"b</c\\\n\u0001\u00e9");
+        m.put("d", 1.0);
+        m.put("d2", 1.5);
+        m.put("f", 2.0f);
+        m.put("l", 3L);
+        m.put("bd", new BigDecimal("1.10"));
+        m.put("color", Color.blue);
+        m.put("ch", 'z');
+        m.put("arr", new String[] { "x", null });
+        m.put("ints", new int[] { 1, 2 });
+        m.put("stackTrace", "excluded");
+        m.put("emptyList", new ArrayList());
+        m.put("nested", Arrays.asList(1, "two", null, Collections.singletonMap("k", "v")));
+        m.put("date", new Date(0));
+        Contact contact = new Contact();
+        contact.self = contact;
+        m.put("contact", contact);
+        m.put("error", new IllegalStateException("boom"));
+
+        assertEquals(render(jsonLibRenderer, m), render(streamingRenderer, m));
+        assertEquals(render(jsonLibRenderer, Arrays.asList(1, 2)), render(streamingRenderer, Arrays.asList(1, 2)));
+        assertEquals(render(jsonLibRenderer, null), render(streamingRenderer, null));
+    }
+
+    @Test
+    public void testCycles() {
+        // json-lib overflows on these (Map and List hashCode)
+        Map parent = new LinkedHashMap();
+        Map child = new LinkedHashMap();
+        List list = new ArrayList();
+        child.put("parent", parent);
+        child.put("list", list);
+        list.add(list);
+        parent.put("child", child);
+        parent.put("again", child);
+
+        assertEquals("{\"child\":{\"parent\":null,\"list\":[[]]},\"again\":{\"parent\":null,\"list\":[[]]}}",
+                     render(streamingRenderer, parent));
+    }
+
+    @Test
+    public void testFailure() {
+        // within the held back head, so, nothing written
+        CharArrayWriter out = new CharArrayWriter();
+        try {
+            streamingRenderer.render(Arrays.asList("first", new BrokenContact()), out);
+            fail("should have thrown");
+        } catch (RuntimeException e) {
+            assertEquals(0, out.size());
+        }
+
+        // bigger than the head, so, streamed (the whole document is not held in memory)
+        List big = new ArrayList();
+        for (int i = 0; i < 2000; i++) {
+            big.add("item " + i);
+        }
+        big.add(new BrokenContact());
+        out = new CharArrayWriter();
+        try {
+            streamingRenderer.render(big, out);
+            fail("should have thrown");
+        } catch (RuntimeException e) {
+            assertTrue(out.size() >= 8192);
+            assertTrue(out.toString().startsWith("[\"item 0\",\"item 1\","));
+        }
+
+        // and the same output as the unbuffered one when it succeeds
+        big.remove(big.size() - 1);
+        assertEquals(render(jsonLibRenderer, big), render(streamingRenderer, big));
+    }
+
+    private String render(JsonRenderer renderer, Object data) {
+        StringWriter sw = new StringWriter();
+        renderer.render(data, sw);
+        return sw.toString();
+    }
+}
@@ -0,0 +1,3 @@
+[#list 1..50 as i]
+line ${i}
+[/#list]
\ No newline at end of file
@@ -0,0 +1 @@
+[@cache key="greeting" varyByParam="lang"]Hello ${r.p.name}[/@cache]
\ No newline at end of file
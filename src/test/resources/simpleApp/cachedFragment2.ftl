@@ -0,0 +1 @@
+[@cache key="greeting" varyByParam="lang"]Hi ${r.p.name}[/@cache]
\ No newline at end of file
@@ -0,0 +1 @@
+Page ${m.count}
\ No newline at end of file
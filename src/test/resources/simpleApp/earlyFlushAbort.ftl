@@ -0,0 +1 @@
+should not be rendered
\ No newline at end of file
@@ -0,0 +1 @@
+[${m.flushed}]
\ No newline at end of file